@@ -0,0 +1,454 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang;
+
+/**
+ * 针对某一个基数预先计算好的 {@code int} 格式化和解析器。
+ * {@link Integer#toString(int, int)} 和 {@link Integer#parseInt(String, int)}
+ * 每次调用都要重新检查基数，并且对每一位都调用通用的
+ * {@link Character#digit(char, int)}；{@code IntCodec} 在创建时就算好了 ASCII
+ * 字符到数字的查找表、正负两种情况下的 {@code multmin}、最大长度，以及
+ * 2 的幂基数的移位量或者其他基数的 {@link Integer.UnsignedDivisor}，之后的
+ * 每次调用都不再需要这些准备工作。
+ * A formatter and parser of {@code int} values specialized for one radix.
+ * {@link Integer#toString(int, int)} and
+ * {@link Integer#parseInt(String, int)} validate the radix on every call
+ * and go through the generic {@link Character#digit(char, int)} for every
+ * digit; an {@code IntCodec} computes, once, an ASCII digit lookup table,
+ * the {@code multmin} limits for both signs, the maximum length, and
+ * either the shift for a power-of-two radix or an
+ * {@link Integer.UnsignedDivisor} for any other, so each call starts
+ * working straight away.
+ *
+ * <p>结果和 {@code Integer} 的对应方法完全相同: 非 ASCII 的数字(例如全角数字)
+ * 仍然通过 {@link Character#digit(char, int)} 识别，有符号的格式是符号加绝对值，
+ * 不是补码。实例是不可变的，可以在线程之间共享。
+ * <p>Results are exactly those of the corresponding {@code Integer}
+ * methods: non-ASCII digits such as full-width ones are still recognized
+ * through {@link Character#digit(char, int)}, and the signed format is a
+ * sign and a magnitude, not two's complement. Instances are immutable and
+ * may be shared between threads.
+ *
+ * @see Integer#toString(int, int)
+ * @see Integer#parseInt(CharSequence, int, int, int)
+ */
+public final class IntCodec {
+
+    /**
+     * 每个基数一个实例，在类初始化时全部创建。
+     * One instance per radix, all created when the class is initialized.
+     */
+    private static final IntCodec[] CODECS = new IntCodec[Character.MAX_RADIX + 1];
+
+    static {
+        for (int r = Character.MIN_RADIX; r <= Character.MAX_RADIX; r++)
+            CODECS[r] = new IntCodec(r);
+    }
+
+    private final int radix;
+
+    /**
+     * ASCII 字符对应的数字，不是这个基数的数字时为 -1。
+     * The digit value of each ASCII char, or -1 if it is not a digit in
+     * this radix.
+     */
+    private final byte[] digitValues = new byte[128];
+
+    /** 正数和负数累加时的 {@code multmin} The {@code multmin} limits. */
+    private final int multminPositive, multminNegative;
+
+    /**
+     * 无符号 32 位数的最大位数，以及 {@code radix^k} 的值，用来计算位数。
+     * The most digits an unsigned 32-bit value takes, and the powers
+     * {@code radix^k} used to count digits.
+     */
+    private final int maxDigits;
+    private final long[] powers;
+
+    /**
+     * 2 的幂基数的移位量，其他基数为 0。
+     * The shift of a power-of-two radix, or 0 for any other radix.
+     */
+    private final int shift;
+    private final Integer.UnsignedDivisor divisor;
+
+    private IntCodec(int radix) {
+        this.radix = radix;
+        for (int c = 0; c < digitValues.length; c++)
+            digitValues[c] = (byte) Character.digit((char) c, radix);
+        this.multminPositive = -Integer.MAX_VALUE / radix;
+        this.multminNegative = Integer.MIN_VALUE / radix;
+        int digits = 1;
+        for (long p = radix; p <= 0xffffffffL; p *= radix)
+            digits++;
+        this.maxDigits = digits;
+        this.powers = new long[digits];
+        long p = 1;
+        for (int k = 0; k < digits; k++, p *= radix)
+            powers[k] = p;
+        boolean powerOfTwo = (radix & (radix - 1)) == 0;
+        this.shift = powerOfTwo ? Integer.numberOfTrailingZeros(radix) : 0;
+        this.divisor = powerOfTwo ? null : Integer.UnsignedDivisor.of(radix);
+    }
+
+    /**
+     * 返回指定基数的 {@code IntCodec}。
+     * Returns the {@code IntCodec} for the given radix.
+     *
+     * @param radix 基数
+     *              the radix
+     * @return 这个基数的实例
+     *         the codec for {@code radix}
+     * @throws IllegalArgumentException 如果基数不在
+     *         {@link Character#MIN_RADIX} 和 {@link Character#MAX_RADIX} 之间
+     *         if the radix is outside
+     *         {@link Character#MIN_RADIX} through {@link Character#MAX_RADIX}
+     */
+    public static IntCodec forRadix(int radix) {
+        if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX)
+            throw new IllegalArgumentException("radix " + radix + " out of range");
+        return CODECS[radix];
+    }
+
+    /**
+     * 返回基数。
+     * Returns the radix.
+     *
+     * @return 基数
+     *         the radix
+     */
+    public int radix() {
+        return radix;
+    }
+
+    /**
+     * 返回 {@link #toString(int)} 和 {@link #toUnsignedString(int)} 可能
+     * 产生的最长的字符串的长度，可以用来确定缓冲区的大小。
+     * Returns the length of the longest string {@link #toString(int)} or
+     * {@link #toUnsignedString(int)} can produce, for sizing buffers.
+     *
+     * @return 最大长度
+     *         the maximum length
+     */
+    public int maxLength() {
+        return maxDigits + 1;
+    }
+
+    // Formatting
+
+    /**
+     * 返回 {@code i} 在这个基数下的有符号字符串表示，和
+     * {@link Integer#toString(int, int)} 相同。
+     * Returns the signed representation of {@code i} in this radix, as
+     * {@link Integer#toString(int, int)} does.
+     *
+     * @param i 要转换的整数
+     *          the integer to be converted
+     * @return 字符串表示
+     *         the string representation
+     */
+    public String toString(int i) {
+        if (radix == 10)
+            return Integer.toString(i);
+        char[] buf = new char[size(i)];
+        format(i, buf, 0, buf.length);
+        return new String(buf, true);
+    }
+
+    /**
+     * 返回 {@code i} 当做无符号数在这个基数下的字符串表示，和
+     * {@link Integer#toUnsignedString(int, int)} 相同。
+     * Returns the representation of {@code i} as an unsigned value in this
+     * radix, as {@link Integer#toUnsignedString(int, int)} does.
+     *
+     * @param i 要转换的整数
+     *          the integer to be converted
+     * @return 字符串表示
+     *         the string representation
+     */
+    public String toUnsignedString(int i) {
+        char[] buf = new char[digitCount(i)];
+        formatUnsigned(i, buf, buf.length);
+        return new String(buf, true);
+    }
+
+    /**
+     * 把 {@code i} 的有符号字符串表示写入到 {@code dst} 从 {@code offset}
+     * 开始的位置，返回写入的字符数。不会分配任何对象。
+     * Writes the signed representation of {@code i} into {@code dst}
+     * starting at {@code offset} and returns the number of chars written.
+     * Nothing is allocated.
+     *
+     * @param i      要转换的整数
+     *               the integer to be converted
+     * @param dst    目标字符数组
+     *               the destination array
+     * @param offset {@code dst} 中开始写入的位置
+     *               the start offset in {@code dst}
+     * @return 写入的字符数
+     *         the number of chars written
+     * @throws IndexOutOfBoundsException 如果 {@code dst} 放不下，这种情况下
+     *         {@code dst} 不会被修改
+     *         if {@code dst} does not have room;
+     *         it is left unmodified in that case
+     */
+    public int getChars(int i, char[] dst, int offset) {
+        if (radix == 10)
+            return Integer.getChars(i, dst, offset);
+        int size = size(i);
+        checkRoom(dst.length, offset, size);
+        format(i, dst, offset, size);
+        return size;
+    }
+
+    /**
+     * 把 {@code i} 当做无符号数的字符串表示写入到 {@code dst} 从
+     * {@code offset} 开始的位置，返回写入的字符数。不会分配任何对象。
+     * Writes the representation of {@code i} as an unsigned value into
+     * {@code dst} starting at {@code offset} and returns the number of
+     * chars written. Nothing is allocated.
+     *
+     * @param i      要转换的整数
+     *               the integer to be converted
+     * @param dst    目标字符数组
+     *               the destination array
+     * @param offset {@code dst} 中开始写入的位置
+     *               the start offset in {@code dst}
+     * @return 写入的字符数
+     *         the number of chars written
+     * @throws IndexOutOfBoundsException 如果 {@code dst} 放不下，这种情况下
+     *         {@code dst} 不会被修改
+     *         if {@code dst} does not have room;
+     *         it is left unmodified in that case
+     */
+    public int getUnsignedChars(int i, char[] dst, int offset) {
+        int size = digitCount(i);
+        checkRoom(dst.length, offset, size);
+        formatUnsigned(i, dst, offset + size);
+        return size;
+    }
+
+    /**
+     * 有符号表示的长度。
+     * The length of the signed representation.
+     */
+    private int size(int i) {
+        return i < 0 ? digitCount(-i) + 1 : digitCount(i);
+    }
+
+    /**
+     * {@code i} 当做无符号数时的位数，{@code -Integer.MIN_VALUE} 也正好是
+     * {@code Integer.MIN_VALUE} 的绝对值。
+     * The number of digits of {@code i} as an unsigned value; this also
+     * covers {@code -Integer.MIN_VALUE}, which is the magnitude of
+     * {@code Integer.MIN_VALUE} read as unsigned.
+     */
+    private int digitCount(int i) {
+        if (shift != 0)
+            return (Integer.SIZE - Integer.numberOfLeadingZeros(i | 1) + shift - 1) / shift;
+        long u = Integer.toUnsignedLong(i);
+        long[] powers = this.powers;
+        int n = 1;
+        while (n < maxDigits && u >= powers[n])
+            n++;
+        return n;
+    }
+
+    private void format(int i, char[] dst, int offset, int size) {
+        if (i < 0) {
+            dst[offset] = '-';
+            formatUnsigned(-i, dst, offset + size);
+        } else {
+            formatUnsigned(i, dst, offset + size);
+        }
+    }
+
+    /**
+     * 把 {@code u} 的各位从 {@code end} 往前写。
+     * Writes the digits of {@code u} backwards from {@code end}.
+     */
+    private void formatUnsigned(int u, char[] dst, int end) {
+        char[] digits = Integer.digits;
+        if (shift != 0) {
+            int mask = radix - 1;
+            do {
+                dst[--end] = digits[u & mask];
+                u >>>= shift;
+            } while (u != 0);
+        } else {
+            Integer.UnsignedDivisor divisor = this.divisor;
+            do {
+                int q = divisor.divide(u);
+                dst[--end] = digits[u - q * radix];
+                u = q;
+            } while (u != 0);
+        }
+    }
+
+    private static void checkRoom(int length, int offset, int size) {
+        if (offset < 0 || offset > length - size)
+            throw new IndexOutOfBoundsException(
+                "offset " + offset + ", size " + size + ", length " + length);
+    }
+
+    // Parsing
+
+    /**
+     * 把 {@code s} 当做这个基数下的有符号整数解析，和
+     * {@link Integer#parseInt(String, int)} 相同。
+     * Parses {@code s} as a signed integer in this radix, as
+     * {@link Integer#parseInt(String, int)} does.
+     *
+     * @param s 要解析的字符序列
+     *          the characters to be parsed
+     * @return 解析出的值
+     *         the parsed value
+     * @throws NumberFormatException 如果 {@code s} 不是一个可解析的
+     *         {@code int}
+     *         if {@code s} does not contain a parsable {@code int}
+     */
+    public int parseInt(CharSequence s) throws NumberFormatException {
+        if (s == null)
+            throw new NumberFormatException("null");
+        return parseInt(s, 0, s.length());
+    }
+
+    /**
+     * 把 {@code s} 中 {@code [beginIndex, endIndex)} 范围内的字符当做这个基数
+     * 下的有符号整数解析，和 {@link Integer#parseInt(CharSequence, int, int, int)}
+     * 相同。
+     * Parses the characters of {@code s} in {@code [beginIndex, endIndex)}
+     * as a signed integer in this radix, as
+     * {@link Integer#parseInt(CharSequence, int, int, int)} does.
+     *
+     * @param s          要解析的字符序列
+     *                   the characters to be parsed
+     * @param beginIndex 开始的下标(包含)
+     *                   the beginning index, inclusive
+     * @param endIndex   结束的下标(不包含)
+     *                   the ending index, exclusive
+     * @return 解析出的值
+     *         the parsed value
+     * @throws IndexOutOfBoundsException 如果范围不合法
+     *         if the range is out of bounds
+     * @throws NumberFormatException 如果指定范围内不是一个可解析的 {@code int}
+     *         if the range does not contain a parsable {@code int}
+     */
+    public int parseInt(CharSequence s, int beginIndex, int endIndex)
+            throws NumberFormatException {
+        if (s == null)
+            throw new NumberFormatException("null");
+        long result = tryParseInt(s, beginIndex, endIndex);
+        if (result < 0)
+            throw Integer.forInputString(s, beginIndex, endIndex);
+        return (int) result;
+    }
+
+    /**
+     * 和 {@link #parseInt(CharSequence)} 一样解析，但是格式错误时不会抛出异常，
+     * 返回值的编码和 {@link Integer#tryParseInt(CharSequence, int)} 相同。
+     * Parses like {@link #parseInt(CharSequence)}, but reports malformed
+     * input through the packed result described in
+     * {@link Integer#tryParseInt(CharSequence, int)} instead of throwing.
+     *
+     * @param s 要解析的字符序列
+     *          the characters to be parsed
+     * @return 打包后的解析结果
+     *         the packed outcome
+     */
+    public long tryParseInt(CharSequence s) {
+        return tryParseInt(s, 0, s.length());
+    }
+
+    /**
+     * 和 {@link #parseInt(CharSequence, int, int)} 一样解析，但是格式错误时
+     * 不会抛出异常，返回值的编码和
+     * {@link Integer#tryParseInt(CharSequence, int, int, int)} 相同。
+     * Parses like {@link #parseInt(CharSequence, int, int)}, but reports
+     * malformed input through the packed result described in
+     * {@link Integer#tryParseInt(CharSequence, int, int, int)} instead of
+     * throwing.
+     *
+     * @param s          要解析的字符序列
+     *                   the characters to be parsed
+     * @param beginIndex 开始的下标(包含)
+     *                   the beginning index, inclusive
+     * @param endIndex   结束的下标(不包含)
+     *                   the ending index, exclusive
+     * @return 打包后的解析结果
+     *         the packed outcome
+     * @throws IndexOutOfBoundsException 如果范围不合法
+     *         if the range is out of bounds
+     */
+    public long tryParseInt(CharSequence s, int beginIndex, int endIndex) {
+        if (beginIndex < 0 || beginIndex > endIndex || endIndex > s.length())
+            throw new IndexOutOfBoundsException(
+                "begin " + beginIndex + ", end " + endIndex + ", length " + s.length());
+        int i = beginIndex;
+        if (i == endIndex)
+            return ~i;
+        boolean negative = false;
+        char firstChar = s.charAt(i);
+        if (firstChar < '0') { // Possible leading "+" or "-"
+            if (firstChar == '-') {
+                negative = true;
+            } else if (firstChar != '+')
+                return ~i;
+            if (++i == endIndex) // Cannot have lone "+" or "-"
+                return ~i;
+        }
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int multmin = negative ? multminNegative : multminPositive;
+        byte[] digitValues = this.digitValues;
+        int radix = this.radix;
+        int result = 0;
+        while (i < endIndex) {
+            // Accumulating negatively avoids surprises near MAX_VALUE
+            // 以负数的方式累加，避免在 MAX_VALUE 附近溢出
+            char c = s.charAt(i);
+            int digit = c < 128 ? digitValues[c] : Character.digit(c, radix);
+            if (digit < 0 || result < multmin)
+                return ~i;
+            result *= radix;
+            if (result < limit + digit)
+                return ~i;
+            result -= digit;
+            i++;
+        }
+        return Integer.toUnsignedLong(negative ? result : -result);
+    }
+
+    /**
+     * 返回这个实例的字符串表示。
+     * Returns a string representation of this codec.
+     *
+     * @return 字符串表示
+     *         a string representation
+     */
+    @Override
+    public String toString() {
+        return "IntCodec[radix=" + radix + "]";
+    }
+}
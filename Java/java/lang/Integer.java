@@ -26,6 +26,9 @@
 package java.lang;
 
 import java.lang.annotation.Native;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 /**
  * {@code Integer} 类包裹了一个原始类型 {@code int} 。{@code Integer} 类型里
@@ -438,8 +441,212 @@ public final class Integer extends Number implements Comparable<Integer> {
         return charPos;
     }
 
+    /**
+     * 一个字节(0..255)对应的两个十六进制数字的 ASCII 表，一共 512 个字节。
+     * {@code HexPairs[2 * b]} 是高 4 位，{@code HexPairs[2 * b + 1]} 是低 4 位。
+     * The two lowercase hex digits of every byte value, 512 bytes in all:
+     * {@code HexPairs[2 * b]} is the high nibble of {@code b} and
+     * {@code HexPairs[2 * b + 1]} the low nibble.
+     */
+    final static byte [] HexPairs = new byte[512];
+
+    static {
+        for (int k = 0; k < 256; k++) {
+            HexPairs[k << 1] = (byte) digits[k >>> 4];
+            HexPairs[(k << 1) + 1] = (byte) digits[k & 0xf];
+        }
+    }
+
+    /**
+     * 将 {@code src} 中 {@code [from, to)} 范围内的每个整数当做无符号数，按固定
+     * 宽度(带前导 {@code 0})格式化成 2<sup>shift</sup> 进制的 ASCII 数字，依次
+     * 写入到 {@code dst} 从 {@code offset} 开始的位置。每个值占用
+     * {@code (32 + shift - 1) / shift} 个字节: 十六进制是 8 个，八进制是 11 个，
+     * 二进制是 32 个。值和值之间没有分隔符，整个过程不会分配任何对象。
+     * Formats each int in {@code src[from, to)} as an unsigned, fixed-width
+     * (zero-padded) number in base 2<sup>shift</sup> and writes the ASCII
+     * digits back to back into {@code dst} starting at {@code offset}. Each
+     * value takes {@code (32 + shift - 1) / shift} bytes: 8 for hex, 11 for
+     * octal and 32 for binary. No separators are written and nothing is
+     * allocated.
+     *
+     * <p>十六进制每次查表处理一个字节，其它基数每次处理一位数字，使用的数字和
+     * {@link #toHexString(int)} 等方法相同。
+     * <p>Hex is formatted one byte per table lookup, other bases one digit
+     * at a time; the digits are those used by {@link #toHexString(int)}
+     * and friends.
+     *
+     * @param src     要格式化的整数数组
+     *                the values to format
+     * @param from    第一个要格式化的下标(包含)
+     *                the index of the first value, inclusive
+     * @param to      最后一个要格式化的下标(不包含)
+     *                the index of the last value, exclusive
+     * @param shift   格式化的基数，log2 的 shift 次方(4对应十六进制，3对应八进制，1对应2进制)
+     *                the log2 of the base to format in (4 for hex, 3 for
+     *                octal, 1 for binary), between 1 and 5
+     * @param dst     目标字节数组
+     *                the destination array
+     * @param offset  {@code dst} 中开始写入的位置
+     *                the start offset in {@code dst}
+     * @return 写入的字节数
+     *         the number of bytes written
+     * @throws IllegalArgumentException 如果 {@code from > to} 或者 {@code shift}
+     *         不在 1 到 5 之间
+     *         if {@code from > to} or {@code shift} is
+     *         not between 1 and 5
+     * @throws ArrayIndexOutOfBoundsException 如果 {@code from < 0} 或者
+     *         {@code to > src.length}
+     *         if {@code from < 0} or {@code to > src.length}
+     * @throws IndexOutOfBoundsException 如果 {@code dst} 放不下所有的数字，这种
+     *         情况下 {@code dst} 不会被修改
+     *         if {@code dst} does not have room for
+     *         all the digits; {@code dst} is left unmodified in that case
+     * @see #toHexString(int)
+     */
+    public static int formatUnsignedInts(int[] src, int from, int to, int shift,
+                                         byte[] dst, int offset) {
+        int width = fixedWidth(src.length, from, to, shift);
+        int size = (to - from) * width;
+        checkRoom(dst.length, offset, size);
+        formatUnsignedInts0(src, from, to, shift, width, dst, offset);
+        return size;
+    }
+
+    /**
+     * 和 {@link #formatUnsignedInts(int[], int, int, int, byte[], int)} 相同，
+     * 只是写入到 {@code dst} 的当前位置，写完之后位置会向后移动写入的字节数。
+     * 有底层数组的缓冲区直接写入数组，直接缓冲区逐个字节写入，都不会分配对象。
+     * Same as {@link #formatUnsignedInts(int[], int, int, int, byte[], int)},
+     * but writes at the current position of {@code dst} and advances it by
+     * the number of bytes written. Array-backed buffers are written through
+     * their array; direct buffers byte by byte. Neither allocates.
+     *
+     * @param src     要格式化的整数数组
+     *                the values to format
+     * @param from    第一个要格式化的下标(包含)
+     *                the index of the first value, inclusive
+     * @param to      最后一个要格式化的下标(不包含)
+     *                the index of the last value, exclusive
+     * @param shift   格式化的基数，log2 的 shift 次方
+     *                the log2 of the base to format in, between 1 and 5
+     * @param dst     目标缓冲区
+     *                the destination buffer
+     * @return 写入的字节数
+     *         the number of bytes written
+     * @throws IllegalArgumentException 如果 {@code from > to} 或者 {@code shift}
+     *         不在 1 到 5 之间
+     *         if {@code from > to} or {@code shift} is
+     *         not between 1 and 5
+     * @throws ArrayIndexOutOfBoundsException 如果 {@code from < 0} 或者
+     *         {@code to > src.length}
+     *         if {@code from < 0} or {@code to > src.length}
+     * @throws BufferOverflowException 如果缓冲区剩余空间不够，这种情况下缓冲区
+     *         不会被修改
+     *         if there is not enough room remaining in
+     *         the buffer; the buffer is left unmodified in that case
+     * @throws java.nio.ReadOnlyBufferException 如果缓冲区是只读的
+     *         if the buffer is read-only
+     */
+    public static int formatUnsignedInts(int[] src, int from, int to, int shift,
+                                         ByteBuffer dst) {
+        int width = fixedWidth(src.length, from, to, shift);
+        int size = (to - from) * width;
+        int pos = dst.position();
+        if (dst.remaining() < size) {
+            throw new BufferOverflowException();
+        }
+        if (dst.hasArray()) {
+            formatUnsignedInts0(src, from, to, shift, width,
+                                dst.array(), dst.arrayOffset() + pos);
+        } else {
+            int mask = (1 << shift) - 1;
+            for (int k = from; k < to; k++) {
+                int val = src[k];
+                for (int p = pos + width - 1; p >= pos; p--) {
+                    dst.put(p, (byte) digits[val & mask]);
+                    val >>>= shift;
+                }
+                pos += width;
+            }
+        }
+        dst.position(dst.position() + size);
+        return size;
+    }
+
+    /**
+     * 检查参数并返回每个值占用的固定宽度。宽度乘以个数不能超过 int 的范围。
+     * Checks the arguments and returns the fixed width of one value; the
+     * total size must also fit in an int.
+     */
+    private static int fixedWidth(int length, int from, int to, int shift) {
+        if (shift < 1 || shift > 5) {
+            throw new IllegalArgumentException("shift " + shift + " not in [1, 5]");
+        }
+        rangeCheck(length, from, to);
+        int width = (Integer.SIZE + shift - 1) / shift;
+        if (to - from > Integer.MAX_VALUE / width) {
+            throw new IndexOutOfBoundsException("too many values: " + (to - from));
+        }
+        return width;
+    }
+
+    private static void formatUnsignedInts0(int[] src, int from, int to, int shift,
+                                            int width, byte[] dst, int offset) {
+        if (shift == 4) {
+            // 十六进制: 每个字节查一次表，输出两个数字
+            // hex: one table lookup per byte, two digits each
+            for (int k = from; k < to; k++, offset += 8) {
+                int val = src[k];
+                int b = (val >>> 23) & 0x1fe;
+                dst[offset]     = HexPairs[b];
+                dst[offset + 1] = HexPairs[b + 1];
+                b = (val >>> 15) & 0x1fe;
+                dst[offset + 2] = HexPairs[b];
+                dst[offset + 3] = HexPairs[b + 1];
+                b = (val >>> 7) & 0x1fe;
+                dst[offset + 4] = HexPairs[b];
+                dst[offset + 5] = HexPairs[b + 1];
+                b = (val << 1) & 0x1fe;
+                dst[offset + 6] = HexPairs[b];
+                dst[offset + 7] = HexPairs[b + 1];
+            }
+        } else {
+            int mask = (1 << shift) - 1;
+            for (int k = from; k < to; k++, offset += width) {
+                int val = src[k];
+                for (int p = offset + width - 1; p >= offset; p--) {
+                    dst[p] = (byte) digits[val & mask];
+                    val >>>= shift;
+                }
+            }
+        }
+    }
+
+    /**
+     * 检查 {@code fromIndex} 和 {@code toIndex} 是否在数组范围内，和
+     * {@code Arrays.rangeCheck} 一样。
+     * Checks that {@code fromIndex} and {@code toIndex} are in range, as
+     * {@code Arrays.rangeCheck} does.
+     */
+    private static void rangeCheck(int arrayLength, int fromIndex, int toIndex) {
+        if (fromIndex > toIndex) {
+            throw new IllegalArgumentException(
+                    "fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")");
+        }
+        if (fromIndex < 0) {
+            throw new ArrayIndexOutOfBoundsException(fromIndex);
+        }
+        if (toIndex > arrayLength) {
+            throw new ArrayIndexOutOfBoundsException(toIndex);
+        }
+    }
+
     /**
      * 获取十位数的char值表
+     * 整型的转换已经改用 {@link #DigitPairs}，这两张表保留给 Long.getChars 使用。
+     * Integer formatting now uses {@link #DigitPairs}; this table and
+     * {@link #DigitOnes} remain for Long.getChars.
      */
     final static char [] DigitTens = {
         '0', '0', '0', '0', '0', '0', '0', '0', '0', '0',
@@ -470,25 +677,32 @@ public final class Integer extends Number implements Comparable<Integer> {
         '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
         } ;
 
-    // 我使用 "乘法来代替不变量的除法" 这个技巧来提高 Integer.toString
-    // 的效率。 通常情况下我们希望避免除以 10 的操作。
-    // I use the "invariant division by multiplication" trick to
-    // accelerate Integer.toString.  In particular we want to
-    // avoid division by 10.
-    //
-    // 这个"技巧" 大致上和 非-JIT VM 的 "经典" Integer.toString 性能
-    // 相同。这个技巧避免了 .rem 和 .div 的调用但是它的代码路径更长并且
-    // 由调度开销控制。在 JIT 的情况下调度开销并不存在这个 "把戏" 被认为
-    // 比经典的代码更快。
-    // The "trick" has roughly the same performance characteristics
-    // as the "classic" Integer.toString code on a non-JIT VM.
-    // The trick avoids .rem and .div calls but has a longer code
-    // path and is thus dominated by dispatch overhead.  In the
-    // JIT case the dispatch overhead doesn't exist and the
-    // "trick" is considerably faster than the classic code.
-    //
-    // TODO-FIXME: convert (x * 52429) into the equiv shift-add
-    // sequence.
+    /**
+     * 00 到 99 的两位数字表，一共 200 个字节。{@code DigitPairs[2 * r]} 是
+     * {@code r} 的十位，{@code DigitPairs[2 * r + 1]} 是个位，这样每除一次 100
+     * 只需要查一张表就能输出两个字符。
+     * The two-digit strings "00" to "99" packed into 200 bytes:
+     * {@code DigitPairs[2 * r]} is the tens digit of {@code r} and
+     * {@code DigitPairs[2 * r + 1]} the ones digit, so every division by
+     * 100 emits two chars from a single table.
+     */
+    final static byte [] DigitPairs = new byte[200];
+
+    static {
+        for (int k = 0; k < 100; k++) {
+            DigitPairs[k << 1] = (byte) ('0' + k / 10);
+            DigitPairs[(k << 1) + 1] = (byte) ('0' + k % 10);
+        }
+    }
+
+    // 以前这里用 "乘法来代替不变量的除法" 的技巧 (x * 52429) 来避免除以 10。
+    // 现在每次循环除以常量 100 生成两位数字，JIT 本身就会把常量除法编译成
+    // 乘法加移位，所以不再需要手写的技巧，位数也减半了。
+    // The "invariant division by multiplication" trick (x * 52429) used to
+    // be applied by hand here to avoid division by 10. Formatting now
+    // divides by the constant 100 to produce two digits per iteration; the
+    // JIT already compiles constant division into a multiply and shift, so
+    // the hand-written trick is gone and the iteration count is halved.
     //
     // RE:  使用乘法代替不变量的乘法
     //     T Gralund, P Montgomery
@@ -539,7 +753,57 @@ public final class Integer extends Number implements Comparable<Integer> {
      * @since 1.8
      */
     public static String toUnsignedString(int i) {
-        return Long.toString(toUnsignedLong(i));
+        if (i >= 0)
+            return toString(i);
+        // 最高位是 1 时先做一次无符号除以 10 (先无符号右移一位再除以 5)，
+        // 商小于 2^31 可以走有符号的两位一组的路径，余数就是最后一位。
+        // With the top bit set, one unsigned division by 10 (shift right
+        // by one, then divide by 5) leaves a quotient below 2^31 for the
+        // signed digit-pair path; the remainder is the last digit.
+        int q = (i >>> 1) / 5;
+        int r = i - q * 10;
+        int size = stringSize(q) + 1;
+        char[] buf = new char[size];
+        buf[size - 1] = (char) ('0' + r);
+        getChars(q, size - 1, buf);
+        return new String(buf, true);
+    }
+
+    /**
+     * 将 {@code i} 当做无符号数，把它的十进制表示以 ASCII 字节的形式写入到
+     * {@code dst} 从 {@code offset} 开始的位置，返回写入的字节数。写入的内容
+     * 和 {@link #toUnsignedString(int)} 返回的字符串相同。
+     * Writes the unsigned decimal representation of {@code i} as ASCII
+     * bytes into {@code dst} starting at {@code offset} and returns the
+     * number of bytes written. The bytes are exactly the chars of
+     * {@link #toUnsignedString(int)}.
+     *
+     * @param   i       要当做无符号数转换的整数
+     *                  an integer to be converted as an unsigned value.
+     * @param   dst     目标字节数组
+     *                  the destination array.
+     * @param   offset  {@code dst} 中开始写入的位置
+     *                  the start offset in {@code dst}.
+     * @return  写入的字节数
+     *          the number of bytes written.
+     * @throws  IndexOutOfBoundsException  如果 {@code dst} 从 {@code offset}
+     *          开始没有足够的空间，这种情况下 {@code dst} 不会被修改
+     *          if {@code dst} does not have room
+     *          for the representation at {@code offset}; {@code dst} is
+     *          left unmodified in that case.
+     * @see     #toUnsignedString(int)
+     * @see     #writeAscii(int, byte[], int)
+     */
+    public static int writeUnsignedAscii(int i, byte[] dst, int offset) {
+        if (i >= 0)
+            return writeAscii(i, dst, offset);
+        int q = (i >>> 1) / 5;
+        int r = i - q * 10;
+        int size = stringSize(q) + 1;
+        checkRoom(dst.length, offset, size);
+        dst[offset + size - 1] = (byte) ('0' + r);
+        getChars(q, offset + size - 1, dst);
+        return size;
     }
 
     /**
@@ -567,72 +831,22 @@ public final class Integer extends Number implements Comparable<Integer> {
 
         // Generate two digits per iteration
         //每次循环生成两位数字
-        while (i >= 65536) {
+        while (i >= 100) {
             q = i / 100;
-        // really: r = i - (q * 100);
-            //位操作比运算效率高
-            r = i - ((q << 6) + (q << 5) + (q << 2));
-            i = q;
-            buf [--charPos] = DigitOnes[r];
-            buf [--charPos] = DigitTens[r];
-        }
-
-        // Fall thru to fast mode for smaller numbers
-        // assert(i <= 65536, i);
-        // 为小数字使用快速模式
-        for (;;) {
-            /*
-            目的是为了 q = i/10  ，因为乘法和位移的效率高于除法。
-            为什么i大于65536的数字要使用除法呢？原因是int型变量最大不能超过(2^31-1)。
-            如果使用一个太大的数字进行乘法加移位运算很容易导致溢出。
-
-            因为 q = (i * a) >>> (b) ~= i/10 那么a和b有如下关系：
-            a= (2^ b/10 +1)
-            这样才能保证(i * a) >>> (b)结果接近于0.1。
-
-            为什么是52429呢?来看以下数据：
-
-            2^10=1024, 103/1024=0.1005859375
-            2^11=2048, 205/2048=0.10009765625
-            2^12=4096, 410/4096=0.10009765625
-            2^13=8192, 820/8192=0.10009765625
-            2^14=16384, 1639/16384=0.10003662109375
-            2^15=32768, 3277/32768=0.100006103515625
-            2^16=65536, 6554/65536=0.100006103515625
-            2^17=131072, 13108/131072=0.100006103515625
-            2^18=262144, 26215/262144=0.10000228881835938
-            2^19=524288, 52429/524288=0.10000038146972656
-            2^20=1048576, 104858/1048576=0.1000003815
-            2^21=2097152, 209716/2097152 = 0.1000003815
-            2^22= 4194304, 419431/4194304= 0.1000001431
-
-            超过22的数字就不考虑了，因为如果b越大，就会要求i比较小，因为必须保证(i * num2) >>> (num3)
-            的过程不会因为溢出而导致数据不准确。那么是怎么敲定i=65536,a= 524288, b=19的呢？
-            这三个数字之间是有这样一个操作的：
-            （i* a）>>> b
-            因为要保证该操作不能因为溢出导致数据不准确，所以i和a就相互约束。两个数的乘积是有一定范围的，
-            所以，i增大，a就要随之减小。
-
-            选取19作为b的原因可能有
-            1.52429/524288=0.10000038146972656 精度足够高。
-            2.下一个精度较高的a和b的组合是419431和22。2^31/2^22 = 2^9 = 512。512这个数字太小了。
-            导致大部分数字还是得使用比较慢的方式处理。
-            65536正好是2^16，一个整数占4个字节。65536正好占了2个字节，选定这样一个数字有利于CPU访问数据。
-
-            其实65536* 52429是超过了int的最大值的，会溢出，那么为什么还能保证（i* a）>>> b
-            能得到正确的结果呢？
-            这和>>>有关，因为>>>表示无符号右移，他会在忽略符号位，空位都以0补齐。
-            一个有符号的整数能表示的范围是-2147483648至2147483647，但是无符号的整数能表示的范围就是
-            0-4,294,967,296（2^32），所以，只要保证num2*num3的值不超过2^32次方就可以了。
-            65536是2^16,52429正好小于2^16,所以，他们的乘积在无符号向右移位就能保证数字的准确性。
-
-            http://www.hollischuang.com/archives/1058
-            * */
-            q = (i * 52429) >>> (16+3);
-            r = i - ((q << 3) + (q << 1));  // r = i-(q*10) ...
-            buf [--charPos] = digits [r];
+            r = (i - q * 100) << 1;
             i = q;
-            if (i == 0) break;
+            buf [--charPos] = (char) DigitPairs[r + 1];
+            buf [--charPos] = (char) DigitPairs[r];
+        }
+
+        // 最后剩下一位或者两位数字
+        // One or two digits left
+        if (i >= 10) {
+            r = i << 1;
+            buf [--charPos] = (char) DigitPairs[r + 1];
+            buf [--charPos] = (char) DigitPairs[r];
+        } else {
+            buf [--charPos] = (char) ('0' + i);
         }
         if (sign != 0) {
             buf [--charPos] = sign;
@@ -640,25 +854,165 @@ public final class Integer extends Number implements Comparable<Integer> {
     }
 
     /**
-     * 数字对应所需的字符串大小的对应表
+     * 和 {@link #getChars(int, int, char[])} 相同，只是写入的是 ASCII 字节。
+     * Same as {@link #getChars(int, int, char[])}, but writes ASCII bytes.
+     *
+     * 如果 i == Integer.MIN_VALUE 会失败
+     * Will fail if i == Integer.MIN_VALUE
      */
-    final static int [] sizeTable = { 9, 99, 999, 9999, 99999, 999999, 9999999,
-                                      99999999, 999999999, Integer.MAX_VALUE };
+    static void getChars(int i, int index, byte[] buf) {
+        int q, r;
+        int charPos = index;
+        byte sign = 0;
+
+        if (i < 0) {
+            sign = '-';
+            i = -i;
+        }
+
+        // Generate two digits per iteration
+        //每次循环生成两位数字
+        while (i >= 100) {
+            q = i / 100;
+            r = (i - q * 100) << 1;
+            i = q;
+            buf [--charPos] = DigitPairs[r + 1];
+            buf [--charPos] = DigitPairs[r];
+        }
+
+        // 最后剩下一位或者两位数字
+        // One or two digits left
+        if (i >= 10) {
+            r = i << 1;
+            buf [--charPos] = DigitPairs[r + 1];
+            buf [--charPos] = DigitPairs[r];
+        } else {
+            buf [--charPos] = (byte) ('0' + i);
+        }
+        if (sign != 0) {
+            buf [--charPos] = sign;
+        }
+    }
+
+    /**
+     * 将 {@code i} 的十进制字符串表示写入到 {@code dst} 从 {@code offset}
+     * 开始的位置，返回写入的字符数。不会分配任何对象，写入的内容和
+     * {@link #toString(int)} 返回的字符串相同。
+     * Writes the decimal representation of {@code i} into {@code dst}
+     * starting at {@code offset} and returns the number of chars written.
+     * Nothing is allocated; the chars written are exactly those of
+     * {@link #toString(int)}.
+     *
+     * @param   i       要转换的整数
+     *                  an integer to be converted.
+     * @param   dst     目标字符数组
+     *                  the destination array.
+     * @param   offset  {@code dst} 中开始写入的位置
+     *                  the start offset in {@code dst}.
+     * @return  写入的字符数
+     *          the number of chars written.
+     * @throws  IndexOutOfBoundsException  如果 {@code dst} 从 {@code offset}
+     *          开始没有足够的空间，这种情况下 {@code dst} 不会被修改
+     *          if {@code dst} does not have room
+     *          for the representation at {@code offset}; {@code dst} is
+     *          left unmodified in that case.
+     * @see     #toString(int)
+     */
+    public static int getChars(int i, char[] dst, int offset) {
+        if (i == Integer.MIN_VALUE) {
+            checkRoom(dst.length, offset, 11);
+            "-2147483648".getChars(0, 11, dst, offset);
+            return 11;
+        }
+        int size = (i < 0) ? stringSize(-i) + 1 : stringSize(i);
+        checkRoom(dst.length, offset, size);
+        getChars(i, offset + size, dst);
+        return size;
+    }
+
+    /**
+     * 将 {@code i} 的十进制表示以 ASCII 字节的形式写入到 {@code dst} 从
+     * {@code offset} 开始的位置，返回写入的字节数。适合直接往输出缓冲区里
+     * 序列化，不会分配任何对象。
+     * Writes the decimal representation of {@code i} as ASCII bytes into
+     * {@code dst} starting at {@code offset} and returns the number of
+     * bytes written. This lets encoders format straight into a reusable
+     * output buffer without allocating.
+     *
+     * @param   i       要转换的整数
+     *                  an integer to be converted.
+     * @param   dst     目标字节数组
+     *                  the destination array.
+     * @param   offset  {@code dst} 中开始写入的位置
+     *                  the start offset in {@code dst}.
+     * @return  写入的字节数
+     *          the number of bytes written.
+     * @throws  IndexOutOfBoundsException  如果 {@code dst} 从 {@code offset}
+     *          开始没有足够的空间，这种情况下 {@code dst} 不会被修改
+     *          if {@code dst} does not have room
+     *          for the representation at {@code offset}; {@code dst} is
+     *          left unmodified in that case.
+     * @see     #toString(int)
+     */
+    public static int writeAscii(int i, byte[] dst, int offset) {
+        if (i == Integer.MIN_VALUE) {
+            checkRoom(dst.length, offset, 11);
+            // -2147483648 = "-2" 后面接上 147483648
+            // -2147483648 is "-2" followed by 147483648
+            dst[offset] = '-';
+            dst[offset + 1] = '2';
+            getChars(147483648, offset + 11, dst);
+            return 11;
+        }
+        int size = (i < 0) ? stringSize(-i) + 1 : stringSize(i);
+        checkRoom(dst.length, offset, size);
+        getChars(i, offset + size, dst);
+        return size;
+    }
 
+    /**
+     * 检查长度为 {@code length} 的数组从 {@code offset} 开始能不能放下
+     * {@code size} 个元素。
+     * Checks that an array of the given length has room for {@code size}
+     * elements at {@code offset}.
+     */
+    private static void checkRoom(int length, int offset, int size) {
+        if (offset < 0 || offset > length - size) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", size " + size
+                                                + ", length " + length);
+        }
+    }
 
+    /**
+     * 数字对应所需的字符串大小的对应表，{@code sizeTable[d]} 是 {@code d} 位
+     * 数字能表示的最大值，{@code sizeTable[0]} 是 -1 这样 0 也占一位。
+     * {@code sizeTable[d]} is the largest value with {@code d} digits;
+     * {@code sizeTable[0]} is -1 so that 0 still takes one digit.
+     */
+    final static int [] sizeTable = { -1, 9, 99, 999, 9999, 99999, 999999,
+                                      9999999, 99999999, 999999999 };
 
     /**
      * 测量x所需要的字符串大小
      *  Requires positive x
      *  x 要是正数
      *
+     * <p>先用二进制的位数估算十进制的位数: 1233 / 4096 约等于 log10(2)，
+     * 估算的结果 {@code d} 要么正好是位数，要么少一位，再和 {@code sizeTable[d]}
+     * 比较一次就能修正，不需要逐个扫描表。
+     * <p>The bit length gives a first estimate of the digit count
+     * (1233 / 4096 is about log10(2)); the estimate {@code d} is either
+     * exact or one short, and a single comparison against
+     * {@code sizeTable[d]} corrects it without scanning the table.
+     *
      * @param   x 要测量的 x
      * @return  x转为字符串需要的大小
      */
     static int stringSize(int x) {
-        for (int i=0; ; i++)
-            if (x <= sizeTable[i])
-                return i+1;
+        int d = ((Integer.SIZE - numberOfLeadingZeros(x | 1)) * 1233) >>> 12;
+        // x > sizeTable[d] 时差值为负，符号位就是要补的那一位
+        // the difference is negative exactly when x > sizeTable[d]
+        return d + ((sizeTable[d] - x) >>> 31);
     }
 
     /**
@@ -749,6 +1103,57 @@ public final class Integer extends Number implements Comparable<Integer> {
             throw new NumberFormatException("null");
         }
 
+        return parseInt(s, 0, s.length(), radix);
+    }
+
+    /**
+     * 将 {@link CharSequence} 参数中从 {@code beginIndex} 开始到 {@code endIndex - 1}
+     * 为止的字符当做一个使用指定基数的有符号整形进行解析。不会创建中间的子串，
+     * 解析规则和 {@link #parseInt(String, int)} 完全相同。
+     * Parses the {@link CharSequence} argument as a signed {@code int} in the
+     * specified {@code radix}, beginning at the specified {@code beginIndex}
+     * and extending to {@code endIndex - 1}.
+     *
+     * <p>这个方法不会防止 {@code CharSequence} 在解析期间被修改，也不会创建中间的子串。
+     * <p>The method does not take steps to guard against the
+     * {@code CharSequence} being mutated while parsing, and no intermediate
+     * substring is created.
+     *
+     * @param      s   包含要解析的 {@code int} 的 {@code CharSequence}
+     *                 the {@code CharSequence} containing the {@code int}
+     *                 representation to be parsed
+     * @param      beginIndex   开始的下标(包含)
+     *                          the beginning index, inclusive.
+     * @param      endIndex     结束的下标(不包含)
+     *                          the ending index, exclusive.
+     * @param      radix   解析 {@code s} 时使用的基数
+     *                     the radix to be used while parsing {@code s}.
+     * @return     指定范围内的字符以指定基数表示的有符号 {@code int}
+     *             the signed {@code int} represented by the subsequence in
+     *             the specified radix.
+     * @throws     IndexOutOfBoundsException  如果 {@code beginIndex} 是负数，或者
+     *             {@code beginIndex} 大于 {@code endIndex}，或者 {@code endIndex}
+     *             大于 {@code s.length()}。
+     *             if {@code beginIndex} is
+     *             negative, or if {@code beginIndex} is greater than
+     *             {@code endIndex} or if {@code endIndex} is greater than
+     *             {@code s.length()}.
+     * @throws     NumberFormatException  如果指定范围内不是一个可解析的 {@code int}，
+     *             或者 {@code s} 是 {@code null}。
+     *             if the {@code CharSequence} does not
+     *             contain a parsable {@code int} in the specified
+     *             {@code radix}, or if {@code s} is {@code null}.
+     */
+    public static int parseInt(CharSequence s, int beginIndex, int endIndex, int radix)
+                throws NumberFormatException {
+        if (s == null) {
+            throw new NumberFormatException("null");
+        }
+
+        if (beginIndex < 0 || beginIndex > endIndex || endIndex > s.length()) {
+            throw new IndexOutOfBoundsException();
+        }
+
         if (radix < Character.MIN_RADIX) {
             throw new NumberFormatException("radix " + radix +
                                             " less than Character.MIN_RADIX");
@@ -759,46 +1164,327 @@ public final class Integer extends Number implements Comparable<Integer> {
                                             " greater than Character.MAX_RADIX");
         }
 
-        int result = 0;
+        long result = parseInt0(s, beginIndex, endIndex, radix);
+        if (result < 0) {
+            throw forInputString(s, beginIndex, endIndex);
+        }
+        return (int) result;
+    }
+
+    /**
+     * 和 {@link #parseInt(String, int)} 一样解析 {@code s}，但是在输入格式
+     * 错误时不会抛出异常，而是把结果打包成一个 {@code long} 返回:
+     * Parses {@code s} exactly like {@link #parseInt(String, int)}, but
+     * instead of throwing on malformed input, packs the outcome into a
+     * {@code long}:
+     * <ul>
+     * <li>成功时结果是非负数，{@code (int) result} 就是解析出的值。
+     * <li>On success the result is non-negative and {@code (int) result}
+     * is the parsed value.
+     * <li>失败时结果是负数，{@code (int) ~result} 是第一个出错字符的下标，
+     * 如果输入提前结束了则是 {@code s.length()}。
+     * <li>On failure the result is negative and {@code (int) ~result} is
+     * the index of the first offending character, or {@code s.length()}
+     * if the input ended too early.
+     * </ul>
+     *
+     * <p>格式错误的路径上不会分配任何对象，适合大量输入都可能是坏数据的场景。
+     * <p>The failure path allocates nothing, which makes this method
+     * suitable when a noticeable share of the input is expected to be
+     * malformed:
+     *
+     * <blockquote><pre>
+     * long r = Integer.tryParseInt(field, 10);
+     * if (r &gt;= 0) {
+     *     sum += (int) r;
+     * } else {
+     *     rejected++;
+     * }
+     * </pre></blockquote>
+     *
+     * @param      s   要解析的 {@code CharSequence}
+     *                 the {@code CharSequence} to be parsed
+     * @param      radix   解析 {@code s} 时使用的基数
+     *                     the radix to be used while parsing {@code s}.
+     * @return     打包后的解析结果
+     *             the packed outcome described above.
+     * @throws     NullPointerException  如果 {@code s} 是 {@code null}
+     *             if {@code s} is {@code null}.
+     * @throws     NumberFormatException  如果基数不在
+     *             {@link java.lang.Character#MIN_RADIX} 到
+     *             {@link java.lang.Character#MAX_RADIX} 之间
+     *             if the radix is outside
+     *             {@link java.lang.Character#MIN_RADIX} ..
+     *             {@link java.lang.Character#MAX_RADIX}.
+     */
+    public static long tryParseInt(CharSequence s, int radix) {
+        return tryParseInt(s, 0, s.length(), radix);
+    }
+
+    /**
+     * 和 {@link #parseInt(CharSequence, int, int, int)} 一样解析指定范围内的
+     * 字符，但是格式错误时不会抛出异常。返回值的编码和
+     * {@link #tryParseInt(CharSequence, int)} 相同，出错的下标是相对于
+     * {@code s} 的开头而不是 {@code beginIndex}。
+     * Parses the subsequence exactly like
+     * {@link #parseInt(CharSequence, int, int, int)}, but reports malformed
+     * input through the packed result described in
+     * {@link #tryParseInt(CharSequence, int)} instead of throwing. Error
+     * indices are relative to the start of {@code s}, not to
+     * {@code beginIndex}.
+     *
+     * @param      s   要解析的 {@code CharSequence}
+     *                 the {@code CharSequence} to be parsed
+     * @param      beginIndex   开始的下标(包含)
+     *                          the beginning index, inclusive.
+     * @param      endIndex     结束的下标(不包含)
+     *                          the ending index, exclusive.
+     * @param      radix   解析 {@code s} 时使用的基数
+     *                     the radix to be used while parsing {@code s}.
+     * @return     打包后的解析结果
+     *             the packed outcome.
+     * @throws     NullPointerException  如果 {@code s} 是 {@code null}
+     *             if {@code s} is {@code null}.
+     * @throws     IndexOutOfBoundsException  如果 {@code beginIndex} 是负数，或者
+     *             {@code beginIndex} 大于 {@code endIndex}，或者 {@code endIndex}
+     *             大于 {@code s.length()}。
+     *             if {@code beginIndex} is
+     *             negative, or if {@code beginIndex} is greater than
+     *             {@code endIndex} or if {@code endIndex} is greater than
+     *             {@code s.length()}.
+     * @throws     NumberFormatException  如果基数不合法
+     *             if the radix is out of range.
+     */
+    public static long tryParseInt(CharSequence s, int beginIndex, int endIndex, int radix) {
+        if (beginIndex < 0 || beginIndex > endIndex || endIndex > s.length()) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (radix < Character.MIN_RADIX) {
+            throw new NumberFormatException("radix " + radix +
+                                            " less than Character.MIN_RADIX");
+        }
+
+        if (radix > Character.MAX_RADIX) {
+            throw new NumberFormatException("radix " + radix +
+                                            " greater than Character.MAX_RADIX");
+        }
+
+        return parseInt0(s, beginIndex, endIndex, radix);
+    }
+
+    /**
+     * 不抛出异常的解析核心，{@code parseInt} 和 {@code tryParseInt} 共用。参数
+     * 已经检查过了。成功时返回 {@code value & 0xffffffffL}，失败时返回
+     * {@code ~errorIndex}。
+     * Exception-free parsing core shared by {@code parseInt} and
+     * {@code tryParseInt}; arguments are already checked. Returns
+     * {@code value & 0xffffffffL} on success and {@code ~errorIndex} on
+     * failure.
+     */
+    private static long parseInt0(CharSequence s, int beginIndex, int endIndex, int radix) {
         boolean negative = false;
-        int i = 0, len = s.length();
-        int limit = -Integer.MAX_VALUE;
-        int multmin;
+        int i = beginIndex;
+
+        if (i == endIndex) {
+            return ~i;
+        }
+        char firstChar = s.charAt(i);
+        if (firstChar < '0') { // Possible leading "+" or "-"
+            if (firstChar == '-') {
+                negative = true;
+            } else if (firstChar != '+')
+                return ~i;
+
+            if (++i == endIndex) // Cannot have lone "+" or "-"
+                return ~i;
+        }
+        return parseDigits(s, i, endIndex, radix, negative);
+    }
+
+    /**
+     * 解析 {@code digitIndex} 到 {@code endIndex} 之间不带符号的数字部分，
+     * 符号已经由调用者处理好了。返回值的编码和 {@link #parseInt0} 相同。
+     * Parses the unsigned digits in {@code [digitIndex, endIndex)}, the sign
+     * having already been consumed by the caller. The result is packed as
+     * in {@link #parseInt0}.
+     */
+    private static long parseDigits(CharSequence s, int digitIndex,
+                                    int endIndex, int radix, boolean negative) {
+        int result = 0;
+        int i = digitIndex;
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int multmin = limit / radix;
         int digit;
 
-        if (len > 0) {
-            char firstChar = s.charAt(0);
-            if (firstChar < '0') { // Possible leading "+" or "-"
-                if (firstChar == '-') {
-                    negative = true;
-                    limit = Integer.MIN_VALUE;
-                } else if (firstChar != '+')
-                    throw NumberFormatException.forInputString(s);
-
-                if (len == 1) // Cannot have lone "+" or "-"
-                    throw NumberFormatException.forInputString(s);
-                i++;
+        // 十进制的快速路径: 每次把 8 个 ASCII 数字装进一个 long 里一起校验和合并。
+        // 8 位十进制数最大是 99999999，所以第一组不需要做溢出检查；只有结果仍然
+        // 是 0 (也就是前面全是前导零)时才继续下一组，剩下不足 8 位的数字和
+        // 遇到非 ASCII 数字的情况都交给下面逐位的循环来处理。
+        // Decimal fast path: validate and combine eight ASCII digits at a
+        // time in a long. Eight digits are at most 99999999, so the first
+        // group cannot overflow; further groups are only taken while the
+        // result is still zero (leading zeros). The remaining digits, and
+        // any group that is not all ASCII digits, go through the loop below.
+        if (radix == 10) {
+            int eight;
+            while (result == 0 && endIndex - i >= 8
+                   && (eight = parseEightDigits(s, i)) >= 0) {
+                result = -eight;
+                i += 8;
             }
-            multmin = limit / radix;
-            while (i < len) {
-                // Accumulating negatively avoids surprises near MAX_VALUE
-                digit = Character.digit(s.charAt(i++),radix);
-                if (digit < 0) {
-                    throw NumberFormatException.forInputString(s);
-                }
-                if (result < multmin) {
-                    throw NumberFormatException.forInputString(s);
-                }
-                result *= radix;
-                if (result < limit + digit) {
-                    throw NumberFormatException.forInputString(s);
-                }
-                result -= digit;
+        }
+
+        while (i < endIndex) {
+            // Accumulating negatively avoids surprises near MAX_VALUE
+            // 以负数的方式累加，避免在 MAX_VALUE 附近溢出
+            digit = Character.digit(s.charAt(i), radix);
+            if (digit < 0) {
+                return ~i;
             }
-        } else {
-            throw NumberFormatException.forInputString(s);
+            if (result < multmin) {
+                return ~i;
+            }
+            result *= radix;
+            if (result < limit + digit) {
+                return ~i;
+            }
+            result -= digit;
+            i++;
+        }
+        return toUnsignedLong(negative ? result : -result);
+    }
+
+    /**
+     * 将 {@code index} 开始的 8 个字符当做 ASCII 十进制数字，用 SWAR
+     * (一个寄存器里的 SIMD) 的方式一次性解析，如果有任何一个字符不是
+     * {@code '0'} 到 {@code '9'} 则返回 -1。
+     * Parses the eight chars starting at {@code index} as ASCII decimal
+     * digits, SWAR style (SIMD within a register), or returns -1 if any of
+     * them is not in {@code '0'..'9'}.
+     */
+    private static int parseEightDigits(CharSequence s, int index) {
+        long word = 0;
+        int bits = 0;
+        // 第一个字符放在最低的字节
+        // first char goes into the lowest byte
+        for (int k = 0; k < 8; k++) {
+            char c = s.charAt(index + k);
+            bits |= c;
+            word |= (long) c << (k << 3);
+        }
+        if (bits > 0xFF) {
+            return -1;
+        }
+        // 每个字节的高 4 位必须是 3，并且加上 6 之后高 4 位仍然是 3，
+        // 也就是字节在 0x30 到 0x39 之间。
+        // Every byte must have a high nibble of 3, and still have one after
+        // adding 6, i.e. lie in 0x30..0x39.
+        if (((word & 0xF0F0F0F0F0F0F0F0L) |
+             (((word + 0x0606060606060606L) & 0xF0F0F0F0F0F0F0F0L) >>> 4))
+                != 0x3333333333333333L) {
+            return -1;
+        }
+        // 三次乘法加移位，依次把相邻的 1 位、2 位、4 位数字合并:
+        // 10 * 低位 + 高位，100 * ...，10000 * ...
+        // Three multiply-shift steps combine adjacent 1-, 2- and 4-digit
+        // groups (x10, x100, x10000).
+        word = ((word & 0x0F0F0F0F0F0F0F0FL) * (10 << 8 | 1)) >>> 8;
+        word = ((word & 0x00FF00FF00FF00FFL) * (100 << 16 | 1)) >>> 16;
+        return (int) (((word & 0x0000FFFF0000FFFFL) * (10000L << 32 | 1)) >>> 32);
+    }
+
+    /**
+     * 只有在出错时才会截取子串来构造异常信息。如果设置了系统属性
+     * {@code java.lang.Integer.lightweightNumberFormatException=true}，返回的是
+     * 一个没有栈轨迹、异常信息在第一次使用时才构造的
+     * {@link LightweightNumberFormatException}，这样大量格式错误的输入不会让
+     * 解析循环把时间都花在填充栈轨迹和拼接字符串上。
+     * Builds the exception for a bad subsequence; the substring is only
+     * created on this error path. When the system property
+     * {@code java.lang.Integer.lightweightNumberFormatException} is
+     * {@code true}, the result is a {@link LightweightNumberFormatException}
+     * with no stack trace and a message built on first use, so a burst of
+     * malformed input does not turn a parse loop into stack walking and
+     * string concatenation.
+     */
+    static NumberFormatException forInputString(CharSequence s,
+                                                int beginIndex, int endIndex) {
+        if (sun.misc.VM.isBooted() && LightweightNumberFormatException.ENABLED) {
+            if (s instanceof String)
+                return new LightweightNumberFormatException((String) s, beginIndex, endIndex);
+            // 其他 CharSequence 可能会被修改，只能现在复制
+            // other CharSequences may change later, so copy them now
+            String copy = s.subSequence(beginIndex, endIndex).toString();
+            return new LightweightNumberFormatException(copy, 0, copy.length());
+        }
+        return NumberFormatException.forInputString(
+                s.subSequence(beginIndex, endIndex).toString());
+    }
+
+    /**
+     * 轻量的 {@code NumberFormatException}: 不填充栈轨迹，只记住出错的字符串和
+     * 范围，异常信息在调用 {@link #getMessage()} 时才构造，内容和
+     * {@code NumberFormatException.forInputString} 相同。序列化时会被替换成
+     * 普通的 {@code NumberFormatException}。
+     * A lightweight {@code NumberFormatException}: it does not fill in its
+     * stack trace and only remembers the offending string and range; the
+     * message, identical to that of
+     * {@code NumberFormatException.forInputString}, is built when
+     * {@link #getMessage()} is first called. It serializes as a plain
+     * {@code NumberFormatException}.
+     */
+    private static final class LightweightNumberFormatException extends NumberFormatException {
+        private static final long serialVersionUID = 2416236245470893962L;
+
+        /**
+         * 系统属性在第一次出错时才读取。
+         * The system property is read on the first failure.
+         */
+        static final boolean ENABLED = Boolean.parseBoolean(
+            sun.misc.VM.getSavedProperty("java.lang.Integer.lightweightNumberFormatException"));
+
+        private final transient String input;
+        private final transient int beginIndex, endIndex;
+        private transient String message;
+
+        LightweightNumberFormatException(String input, int beginIndex, int endIndex) {
+            this.input = input;
+            this.beginIndex = beginIndex;
+            this.endIndex = endIndex;
+        }
+
+        @Override
+        public String getMessage() {
+            String m = message;
+            if (m == null)
+                message = m = "For input string: \"" +
+                    input.substring(beginIndex, endIndex) + "\"";
+            return m;
+        }
+
+        /**
+         * 和普通的 {@code NumberFormatException} 显示相同的类名，日志不会因为
+         * 打开了这个选项而改变。
+         * Shows the same class name as a plain
+         * {@code NumberFormatException}, so logs do not change when the
+         * option is turned on.
+         */
+        @Override
+        public String toString() {
+            return NumberFormatException.class.getName() + ": " + getLocalizedMessage();
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+
+        private Object writeReplace() {
+            NumberFormatException e = new NumberFormatException(getMessage());
+            e.setStackTrace(getStackTrace());
+            return e;
         }
-        return negative ? result : -result;
     }
 
     /**
@@ -871,30 +1557,105 @@ public final class Integer extends Number implements Comparable<Integer> {
             throw new NumberFormatException("null");
         }
 
-        int len = s.length();
+        return parseUnsignedInt(s, 0, s.length(), radix);
+    }
+
+    /**
+     * 将 {@link CharSequence} 参数中从 {@code beginIndex} 开始到 {@code endIndex - 1}
+     * 为止的字符当做一个使用指定基数的无符号整形进行解析。不会创建中间的子串，
+     * 解析规则和 {@link #parseUnsignedInt(String, int)} 完全相同。
+     * Parses the {@link CharSequence} argument as an unsigned {@code int} in
+     * the specified {@code radix}, beginning at the specified
+     * {@code beginIndex} and extending to {@code endIndex - 1}.
+     *
+     * <p>这个方法不会防止 {@code CharSequence} 在解析期间被修改，也不会创建中间的子串。
+     * <p>The method does not take steps to guard against the
+     * {@code CharSequence} being mutated while parsing, and no intermediate
+     * substring is created.
+     *
+     * @param      s   包含要解析的无符号 {@code int} 的 {@code CharSequence}
+     *                 the {@code CharSequence} containing the unsigned
+     *                 {@code int} representation to be parsed
+     * @param      beginIndex   开始的下标(包含)
+     *                          the beginning index, inclusive.
+     * @param      endIndex     结束的下标(不包含)
+     *                          the ending index, exclusive.
+     * @param      radix   解析 {@code s} 时使用的基数
+     *                     the radix to be used while parsing {@code s}.
+     * @return     指定范围内的字符以指定基数表示的无符号 {@code int}
+     *             the unsigned {@code int} represented by the subsequence in
+     *             the specified radix.
+     * @throws     IndexOutOfBoundsException  如果 {@code beginIndex} 是负数，或者
+     *             {@code beginIndex} 大于 {@code endIndex}，或者 {@code endIndex}
+     *             大于 {@code s.length()}。
+     *             if {@code beginIndex} is
+     *             negative, or if {@code beginIndex} is greater than
+     *             {@code endIndex} or if {@code endIndex} is greater than
+     *             {@code s.length()}.
+     * @throws     NumberFormatException  如果指定范围内不是一个可解析的无符号
+     *             {@code int}，或者 {@code s} 是 {@code null}。
+     *             if the {@code CharSequence} does not
+     *             contain a parsable unsigned {@code int} in the specified
+     *             {@code radix}, or if {@code s} is {@code null}.
+     */
+    public static int parseUnsignedInt(CharSequence s, int beginIndex, int endIndex, int radix)
+                throws NumberFormatException {
+        if (s == null)  {
+            throw new NumberFormatException("null");
+        }
+
+        if (beginIndex < 0 || beginIndex > endIndex || endIndex > s.length()) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (radix < Character.MIN_RADIX) {
+            throw new NumberFormatException("radix " + radix +
+                                            " less than Character.MIN_RADIX");
+        }
+
+        if (radix > Character.MAX_RADIX) {
+            throw new NumberFormatException("radix " + radix +
+                                            " greater than Character.MAX_RADIX");
+        }
+
+        int len = endIndex - beginIndex;
         if (len > 0) {
-            char firstChar = s.charAt(0);
+            char firstChar = s.charAt(beginIndex);
             if (firstChar == '-') {
                 throw new
                     NumberFormatException(String.format("Illegal leading minus sign " +
-                                                       "on unsigned string %s.", s));
+                                                       "on unsigned string %s.",
+                                                       s.subSequence(beginIndex, endIndex)));
             } else {
                 if (len <= 5 || // Integer.MAX_VALUE in Character.MAX_RADIX is 6 digits
                     (radix == 10 && len <= 9) ) { // Integer.MAX_VALUE in base 10 is 10 digits
-                    return parseInt(s, radix);
+                    return parseInt(s, beginIndex, endIndex, radix);
                 } else {
-                    long ell = Long.parseLong(s, radix);
-                    if ((ell & 0xffff_ffff_0000_0000L) == 0) {
-                        return (int) ell;
-                    } else {
-                        throw new
-                            NumberFormatException(String.format("String value %s exceeds " +
-                                                                "range of unsigned int.", s));
+                    // 长度超过了有符号解析能安全处理的范围，直接用 long 累加。
+                    // 每一步之前结果都不超过 2^32，乘以基数也不会让 long 溢出。
+                    // Too long for the signed path; accumulate in a long. The
+                    // running value never exceeds 2^32 before the multiply,
+                    // so the long cannot overflow.
+                    int i = (firstChar == '+') ? beginIndex + 1 : beginIndex;
+                    long ell = 0;
+                    while (i < endIndex) {
+                        int digit = Character.digit(s.charAt(i++), radix);
+                        if (digit < 0) {
+                            throw forInputString(s, beginIndex, endIndex);
+                        }
+                        ell = ell * radix + digit;
+                        if ((ell & 0xffff_ffff_0000_0000L) != 0) {
+                            throw new
+                                NumberFormatException(String.format("String value %s exceeds " +
+                                                                    "range of unsigned int.",
+                                                                    s.subSequence(beginIndex, endIndex)));
+                        }
                     }
+                    return (int) ell;
                 }
             }
         } else {
-            throw NumberFormatException.forInputString(s);
+            throw forInputString(s, beginIndex, endIndex);
         }
     }
 
@@ -982,14 +1743,69 @@ public final class Integer extends Number implements Comparable<Integer> {
      * During VM initialization, java.lang.Integer.IntegerCache.high property
      * may be set and saved in the private system properties in the
      * sun.misc.VM class.
+     *
+     * 下界同样可以通过 java.lang.Integer.IntegerCache.low 属性调低(不会高于 -128)。
+     * The low bound may likewise be lowered (never above -128) through the
+     * java.lang.Integer.IntegerCache.low property.
+     *
+     * 设置 java.lang.Integer.IntegerCache.sample=N 之后，大约每 N 次
+     * {@link Integer#valueOf(int)} 没有命中缓存时会记录一次这个值所在的数量级，
+     * JVM 退出时把统计结果和推荐的 low/high 打印到标准错误输出。
+     * Setting java.lang.Integer.IntegerCache.sample=N records the magnitude
+     * of roughly one in N {@link Integer#valueOf(int)} cache misses and,
+     * at VM exit, prints the histogram together with a recommended
+     * low/high range to standard error.
      */
 
     private static class IntegerCache {
-        static final int low = -128;
+        static final int low;
         static final int high;
-        static final Integer cache[];
+
+        /**
+         * 缓存按每页 4096 个值分页，第一次访问某一页时才创建并填充这一页，
+         * 所以调大 high 之后启动开销只和实际用到的值成正比。
+         * The cache is split into pages of 4096 values; a page is created
+         * and filled on first access, so raising high costs startup time
+         * and heap only for the values actually used.
+         */
+        static final int PAGE_SHIFT = 12;
+        static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+        static final int PAGE_MASK = PAGE_SIZE - 1;
+
+        /**
+         * 已经发布的页，只通过 CAS 从 null 设置一次，之后不再改变，所以同一个
+         * 值总是返回同一个对象。
+         * The published pages. Each slot goes from null to its page once,
+         * by CAS, and never changes again, so a value always maps to the
+         * same object.
+         */
+        static final Integer pages[][];
+
+        /**
+         * 采样的掩码，-1 表示不采样。
+         * Miss sampling mask, or -1 if sampling is off.
+         */
+        static final int sampleMask;
 
         static {
+            // low value may be configured by property
+            // 下界可以调低，但是 [-128, 127] 必须被缓存，并且要给 high 留出空间
+            // the low value may only be lowered, and must leave room for
+            // a high of 127 within the maximum array size
+            int l = -128;
+            String integerCacheLowPropValue =
+                sun.misc.VM.getSavedProperty("java.lang.Integer.IntegerCache.low");
+            if (integerCacheLowPropValue != null) {
+                try {
+                    int i = parseInt(integerCacheLowPropValue);
+                    i = Math.min(i, -128);
+                    l = Math.max(i, -(Integer.MAX_VALUE - 128));
+                } catch( NumberFormatException nfe) {
+                    // If the property cannot be parsed into an int, ignore it.
+                }
+            }
+            low = l;
+
             // high value may be configured by property
             int h = 127;
             String integerCacheHighPropValue =
@@ -1006,15 +1822,222 @@ public final class Integer extends Number implements Comparable<Integer> {
             }
             high = h;
 
-            cache = new Integer[(high - low) + 1];
-            int j = low;
-            for(int k = 0; k < cache.length; k++)
-                cache[k] = new Integer(j++);
+            // 采样间隔向上取整到 2 的幂，这样只需要一次按位与
+            // round the sampling interval up to a power of two so the
+            // check is a single mask
+            int mask = -1;
+            String integerCacheSamplePropValue =
+                sun.misc.VM.getSavedProperty("java.lang.Integer.IntegerCache.sample");
+            if (integerCacheSamplePropValue != null) {
+                try {
+                    int n = parseInt(integerCacheSamplePropValue);
+                    if (n > 0) {
+                        mask = (n == 1) ? 0 : highestOneBit(Math.min(n - 1, 1 << 29)) * 2 - 1;
+                    }
+                } catch( NumberFormatException nfe) {
+                    // If the property cannot be parsed into an int, ignore it.
+                }
+            }
+            sampleMask = mask;
+
+            pages = new Integer[((high - low) >>> PAGE_SHIFT) + 1][];
+            // [-128, 127] 所在的页在启动时就创建好，其它页按需创建
+            // the pages holding [-128, 127] are filled eagerly, the rest on demand
+            for (int p = (-128 - low) >>> PAGE_SHIFT; p <= (127 - low) >>> PAGE_SHIFT; p++)
+                pages[p] = newPage(p);
 
             // range [-128, 127] must be interned (JLS7 5.1.7)
+            assert IntegerCache.low <= -128;
             assert IntegerCache.high >= 127;
         }
 
+        private static final sun.misc.Unsafe U = sun.misc.Unsafe.getUnsafe();
+        private static final long PBASE = U.arrayBaseOffset(Integer[][].class);
+        private static final int PSHIFT =
+            31 - numberOfLeadingZeros(U.arrayIndexScale(Integer[][].class));
+
+        /**
+         * 返回 {@code low <= i <= high} 的缓存对象。快速路径只是普通读；如果看到的
+         * 页还没有创建，或者因为没有 happens-before 关系而看到了还没有填充好的
+         * 元素，就走慢速路径用 volatile 读重新获取。
+         * Returns the cached instance for {@code low <= i <= high}. The fast
+         * path uses plain reads; if the page is missing, or an element is
+         * seen as null because the plain read raced with publication, the
+         * slow path re-reads the page with volatile semantics.
+         */
+        static Integer get(int i) {
+            int index = i - low;
+            Integer[] page = pages[index >>> PAGE_SHIFT];
+            Integer value;
+            if (page != null && (value = page[index & PAGE_MASK]) != null)
+                return value;
+            return getSlow(index);
+        }
+
+        private static Integer getSlow(int index) {
+            int p = index >>> PAGE_SHIFT;
+            long offset = ((long) p << PSHIFT) + PBASE;
+            Integer[] page = (Integer[]) U.getObjectVolatile(pages, offset);
+            if (page == null) {
+                // 多个线程可能同时创建同一页，只有 CAS 成功的那一页会被使用
+                // several threads may build the same page; only the one that
+                // wins the CAS is ever handed out
+                page = newPage(p);
+                if (!U.compareAndSwapObject(pages, offset, null, page))
+                    page = (Integer[]) U.getObjectVolatile(pages, offset);
+            }
+            return page[index & PAGE_MASK];
+        }
+
+        /**
+         * 创建并填充第 {@code p} 页，最后一页只包含到 {@code high} 为止的值。
+         * Creates and fills page {@code p}; the last page only extends to
+         * {@code high}.
+         */
+        private static Integer[] newPage(int p) {
+            int first = p << PAGE_SHIFT;
+            Integer[] page = new Integer[Math.min(PAGE_SIZE, (high - low) - first + 1)];
+            int j = low + first;
+            for(int k = 0; k < page.length; k++)
+                page[k] = new Integer(j++);
+            return page;
+        }
+
+        /**
+         * 未命中的计数。每次未命中都会更新它，所以故意不加锁也不用原子操作:
+         * 并发时会丢失一些更新，采样因此变得稀疏一些、间隔不再精确，但报告
+         * 只是一个近似的统计，这没有关系。
+         * Miss counter. It is bumped on every miss, so it is deliberately a
+         * plain racy increment: concurrent misses may lose updates, which
+         * only makes the sampling lossy and its interval approximate. The
+         * report is an estimate either way.
+         */
+        private static int misses;
+
+        /**
+         * 按数量级统计的采样结果: 下标 b (0..32) 是二进制位数为 b 的非负数，
+         * 下标 33 + b 是 {@code ~i} 的位数为 b 的负数。只有被采样到的未命中才会
+         * 更新，所以用原子加法，不会丢失计数。
+         * Sampled misses by magnitude: index b (0..32) counts non-negative
+         * values of bit length b, index 33 + b negative values whose
+         * complement has bit length b. Only sampled misses touch it, so it
+         * is updated atomically and never loses a count.
+         */
+        private static final int[] histogram = new int[66];
+        private static final long HBASE = U.arrayBaseOffset(int[].class);
+        private static final int HSHIFT =
+            31 - numberOfLeadingZeros(U.arrayIndexScale(int[].class));
+
+        private static boolean reportRegistered;
+
+        /**
+         * 在 {@link Integer#valueOf(int)} 未命中缓存时调用。
+         * Called on a {@link Integer#valueOf(int)} cache miss.
+         */
+        static void recordMiss(int i) {
+            if ((++misses & sampleMask) != 0)
+                return;
+            int bucket = (i >= 0) ? Integer.SIZE - numberOfLeadingZeros(i)
+                                  : 33 + Integer.SIZE - numberOfLeadingZeros(~i);
+            U.getAndAddInt(histogram, ((long) bucket << HSHIFT) + HBASE, 1);
+            if (!reportRegistered)
+                registerReport();
+        }
+
+        /**
+         * VM 启动完成之后才能注册关闭钩子，之前的采样只是先累计起来。
+         * 装箱绝不能抛出异常，所以注册在特权块里进行(调用者可能是不受信任的
+         * 代码)，并且只尝试一次: 如果已经在关闭过程中，或者仍然被安全管理器
+         * 拒绝，就放弃报告。
+         * Shutdown hooks can only be added once the VM has booted; samples
+         * taken before that are simply accumulated. Boxing must never
+         * throw, so the hook is added in a privileged block, since the
+         * caller may be untrusted code, and only one attempt is made: if
+         * shutdown is already in progress, or the hook is still refused,
+         * the report is dropped.
+         */
+        private static synchronized void registerReport() {
+            if (reportRegistered || !sun.misc.VM.isBooted())
+                return;
+            reportRegistered = true;
+            try {
+                java.security.AccessController.doPrivileged(
+                    new java.security.PrivilegedAction<Void>() {
+                        public Void run() {
+                            Runtime.getRuntime().addShutdownHook(
+                                new Thread("IntegerCache report") {
+                                    public void run() {
+                                        System.err.print(report());
+                                    }
+                                });
+                            return null;
+                        }
+                    });
+            } catch (IllegalStateException | SecurityException e) {
+                // no report
+            }
+        }
+
+        /**
+         * 生成报告: 每个数量级的采样次数，以及能覆盖 90% 采样的 low/high。
+         * 缓存里每多一个值大约要多占用 20 个字节(对象加引用)。
+         * Builds the report: sampled misses per magnitude and the low/high
+         * that would cover 90% of them. Every extra cached value costs
+         * about 20 bytes of heap (object plus reference).
+         */
+        static String report() {
+            int[] counts = histogram.clone();
+            long positive = 0, negative = 0;
+            for (int b = 0; b <= 32; b++) {
+                positive += counts[b];
+                negative += counts[33 + b];
+            }
+            StringBuilder sb = new StringBuilder();
+            sb.append("IntegerCache: low=").append(low).append(" high=").append(high)
+              .append(", sampled misses: ").append(positive + negative)
+              .append(" (1 in ").append(sampleMask + 1L).append(")\n");
+            for (int b = 0; b <= 32; b++) {
+                if (counts[b] != 0)
+                    sb.append("  [").append(b == 0 ? 0 : 1L << (b - 1)).append(", ")
+                      .append((1L << b) - 1).append("]: ").append(counts[b]).append('\n');
+            }
+            for (int b = 0; b <= 32; b++) {
+                if (counts[33 + b] != 0)
+                    sb.append("  [").append(-(1L << b)).append(", ")
+                      .append(b == 0 ? -1 : -(1L << (b - 1)) - 1).append("]: ")
+                      .append(counts[33 + b]).append('\n');
+            }
+            long recommendedHigh = high;
+            long seen = 0;
+            for (int b = 0; b <= 31 && positive > 0; b++) {
+                seen += counts[b];
+                if (seen * 10 >= positive * 9) {
+                    recommendedHigh = Math.max(high, (1L << b) - 1);
+                    break;
+                }
+            }
+            long recommendedLow = low;
+            seen = 0;
+            for (int b = 0; b <= 31 && negative > 0; b++) {
+                seen += counts[33 + b];
+                if (seen * 10 >= negative * 9) {
+                    recommendedLow = Math.min(low, -(1L << b));
+                    break;
+                }
+            }
+            // 与上面解析属性时的截断相同，否则推荐值设置后不会生效
+            // Clamp as the property parsing above does, or the values
+            // recommended would not be the ones taking effect
+            recommendedLow = Math.max(recommendedLow, -(Integer.MAX_VALUE - 128));
+            recommendedHigh = Math.min(recommendedHigh,
+                                       Integer.MAX_VALUE - (-recommendedLow) - 1);
+            long extra = (recommendedHigh - high) + (low - recommendedLow);
+            sb.append("  recommended: -Djava.lang.Integer.IntegerCache.low=").append(recommendedLow)
+              .append(" -Djava.lang.Integer.IntegerCache.high=").append(recommendedHigh)
+              .append(" (about ").append(extra * 20 / 1024).append(" KB more heap)\n");
+            return sb.toString();
+        }
+
         private IntegerCache() {}
     }
 
@@ -1035,7 +2058,9 @@ public final class Integer extends Number implements Comparable<Integer> {
      */
     public static Integer valueOf(int i) {
         if (i >= IntegerCache.low && i <= IntegerCache.high)
-            return IntegerCache.cache[i + (-IntegerCache.low)];
+            return IntegerCache.get(i);
+        if (IntegerCache.sampleMask >= 0)
+            IntegerCache.recordMiss(i);
         return new Integer(i);
     }
 
@@ -1167,6 +2192,102 @@ public final class Integer extends Number implements Comparable<Integer> {
         return value;
     }
 
+    /**
+     * 返回 {@code value} 充分混合后的哈希值，使用 MurmurHash3 的 fmix32
+     * 终结函数。{@link #hashCode(int)} 直接返回值本身，连续的或者按固定步长
+     * 分布的键在开放寻址的表中会聚集在一起；混合之后每一位输入都会影响输出的
+     * 每一位，可以直接用低位作为桶的下标。这个函数是一个双射，不同的输入总是
+     * 得到不同的输出。
+     * Returns a thoroughly mixed hash of {@code value} using the fmix32
+     * finalizer of MurmurHash3. {@link #hashCode(int)} returns the value
+     * itself, so sequential or stride-aligned keys cluster in
+     * open-addressing tables; after mixing every input bit affects every
+     * output bit and the low bits can be used directly as a bucket index.
+     * The function is a bijection, so distinct inputs never collide.
+     *
+     * @param value 要混合的值
+     *              the value to mix
+     * @return 混合后的哈希值
+     *         the mixed hash
+     * @see #hashSpread(int, int)
+     */
+    public static int mix(int value) {
+        int h = value;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * 返回 {@code value} 带种子的哈希值，等于 MurmurHash3_x86_32 对
+     * {@code value} 的 4 个小端字节计算的结果。不同的种子给出互不相关的
+     * 哈希函数，可以用来在重新建表时打散恶意构造的冲突。
+     * Returns a seeded hash of {@code value}, equal to MurmurHash3_x86_32
+     * of the four little-endian bytes of {@code value}. Different seeds give
+     * unrelated hash functions, which lets a table rehash away from
+     * adversarial collisions.
+     *
+     * @param value 要哈希的值
+     *              the value to hash
+     * @param seed  种子
+     *              the seed
+     * @return 哈希值
+     *         the hash
+     * @see #mix(int)
+     */
+    public static int hashSpread(int value, int seed) {
+        int k = value * 0xcc9e2d51;
+        k = rotateLeft(k, 15);
+        k *= 0x1b873593;
+        int h = seed ^ k;
+        h = rotateLeft(h, 13);
+        h = h * 5 + 0xe6546b64;
+        return mix(h ^ BYTES);
+    }
+
+    /**
+     * 对 {@code src} 的每个元素计算 {@link #mix(int)}，取对应大小为
+     * {@code tableSize} 的表的桶下标，写到 {@code dst} 相同的下标上。
+     * {@code src} 和 {@code dst} 可以是同一个数组。
+     * Stores the bucket index of {@link #mix(int)} of every element of
+     * {@code src} in a table of {@code tableSize} buckets at the same index
+     * of {@code dst}. {@code src} and {@code dst} may be the same array.
+     *
+     * @param src       要哈希的键
+     *                  the keys to hash
+     * @param tableSize 表的大小，必须是 2 的幂
+     *                  the number of buckets, a power of two
+     * @param dst       结果数组，长度不能小于 {@code src}
+     *                  the destination, at least as long as {@code src}
+     * @throws IllegalArgumentException 如果 {@code tableSize} 不是正的 2 的幂
+     *         if {@code tableSize} is not a positive
+     *         power of two
+     * @throws ArrayIndexOutOfBoundsException
+     *         if {@code dst} is shorter than {@code src}
+     * @see #mix(int)
+     */
+    public static void bucketIndices(int[] src, int tableSize, int[] dst) {
+        if (tableSize <= 0 || (tableSize & (tableSize - 1)) != 0)
+            throw new IllegalArgumentException("tableSize must be a power of two: " + tableSize);
+        int n = src.length;
+        if (dst.length < n)
+            throw new ArrayIndexOutOfBoundsException(n);
+        int mask = tableSize - 1;
+        int i = 0;
+        for (int end = n - 3; i < end; i += 4) {
+            dst[i]     = mix(src[i]) & mask;
+            dst[i + 1] = mix(src[i + 1]) & mask;
+            dst[i + 2] = mix(src[i + 2]) & mask;
+            dst[i + 3] = mix(src[i + 3]) & mask;
+        }
+        for (; i < n; i++) {
+            dst[i] = mix(src[i]) & mask;
+        }
+    }
+
     /**
      * Compares this object to the specified object.  The result is
      * {@code true} if and only if the argument is not
@@ -1317,6 +2438,152 @@ public final class Integer extends Number implements Comparable<Integer> {
         return val;
     }
 
+    /**
+     * 和 {@link #getInteger(String, int)} 一样确定指定名字的系统属性的整数值，
+     * 但是每个属性只会读取和解析一次，结果保存在一个以名字哈希值为键的表里，
+     * 之后的查找只需要一次 volatile 读和一次探测，也不会装箱。
+     * Determines the integer value of the system property with the
+     * specified name, like {@link #getInteger(String, int)}, but reads and
+     * parses each property only once. The outcome is kept in a table keyed
+     * by the name's hash code, so later lookups cost one volatile read and
+     * a probe, and nothing is boxed.
+     *
+     * <p>缓存不会自己发现属性的变化，修改属性之后要调用
+     * {@link #refreshCachedIntegers()}。缺失或者格式错误的属性同样会被缓存，
+     * 这时返回的是本次调用传入的默认值。
+     * <p>The cache does not notice property changes on its own; call
+     * {@link #refreshCachedIntegers()} after changing a property. Missing
+     * or malformed properties are cached too, in which case the default of
+     * the current call is returned.
+     *
+     * <p>安装了安全管理器时不使用缓存，每次都和 {@code getInteger} 一样做
+     * 权限检查。
+     * <p>When a security manager is installed the cache is bypassed, so
+     * every call performs the same permission check as {@code getInteger}.
+     *
+     * @param   nm   属性名
+     *               property name.
+     * @param   val  默认值
+     *               default value.
+     * @return  属性的 {@code int} 值，或者 {@code val}
+     *          the {@code int} value of the property, or {@code val}.
+     * @throws  SecurityException for the same reasons as
+     *          {@link System#getProperty(String) System.getProperty}
+     * @see     #getInteger(String, int)
+     * @see     #refreshCachedIntegers()
+     */
+    public static int getCachedInteger(String nm, int val) {
+        if (nm == null)
+            return val;
+        if (System.getSecurityManager() != null)
+            return getInteger(nm, val).intValue();
+        PropertyCache.Table t = PropertyCache.table;
+        int h = nm.hashCode();
+        for (int i = h & t.mask; ; i = (i + 1) & t.mask) {
+            String name = t.names[i];
+            if (name == null)
+                break;
+            if (t.hashes[i] == h && name.equals(nm))
+                return t.present[i] ? t.values[i] : val;
+        }
+        return PropertyCache.load(t, nm, h, val);
+    }
+
+    /**
+     * 丢弃 {@link #getCachedInteger(String, int)} 缓存的所有属性值，之后的查找
+     * 会重新读取系统属性。修改了相关的系统属性之后应该调用这个方法。
+     * Discards every property value cached by
+     * {@link #getCachedInteger(String, int)}, so later lookups read the
+     * system properties again. Call this after changing any of them.
+     */
+    public static void refreshCachedIntegers() {
+        PropertyCache.refresh();
+    }
+
+    /**
+     * {@link #getCachedInteger(String, int)} 的缓存。表是不可变的，写入时复制
+     * 一份新的再发布，读的时候不需要加锁。
+     * The cache behind {@link #getCachedInteger(String, int)}. Tables are
+     * immutable and replaced copy-on-write, so readers never lock.
+     */
+    private static final class PropertyCache {
+        static final class Table {
+            final int mask;
+            final int size;
+            final int generation;
+            final int[] hashes;
+            final String[] names;
+            final int[] values;
+            final boolean[] present;
+
+            Table(int capacity, int size, int generation) {
+                this.mask = capacity - 1;
+                this.size = size;
+                this.generation = generation;
+                this.hashes = new int[capacity];
+                this.names = new String[capacity];
+                this.values = new int[capacity];
+                this.present = new boolean[capacity];
+            }
+
+            void insert(String name, int h, boolean isPresent, int value) {
+                int i = h & mask;
+                while (names[i] != null)
+                    i = (i + 1) & mask;
+                hashes[i] = h;
+                names[i] = name;
+                present[i] = isPresent;
+                values[i] = value;
+            }
+        }
+
+        static volatile Table table = new Table(8, 0, 0);
+
+        /**
+         * 读取并解析属性，然后把结果加入到表里。如果读取期间缓存被刷新过
+         * (代数变了)，这次的结果可能已经过期，只返回不缓存。
+         * Reads and parses the property, then adds the outcome to the
+         * table. If the cache was refreshed meanwhile (the generation
+         * moved on) the outcome may be stale, so it is returned but not
+         * cached.
+         */
+        static int load(Table seen, String nm, int h, int val) {
+            Integer result = getInteger(nm, null);
+            synchronized (PropertyCache.class) {
+                Table t = table;
+                if (t.generation == seen.generation && !contains(t, nm, h)) {
+                    int capacity = t.mask + 1;
+                    // 负载因子不超过 1/2，保证探测很短
+                    // keep the load factor at or below 1/2 so probes stay short
+                    if ((t.size + 1) * 2 > capacity)
+                        capacity <<= 1;
+                    Table n = new Table(capacity, t.size + 1, t.generation);
+                    for (int i = 0; i <= t.mask; i++) {
+                        if (t.names[i] != null)
+                            n.insert(t.names[i], t.hashes[i], t.present[i], t.values[i]);
+                    }
+                    n.insert(nm, h, result != null, result != null ? result.intValue() : 0);
+                    table = n;
+                }
+            }
+            return (result != null) ? result.intValue() : val;
+        }
+
+        private static boolean contains(Table t, String nm, int h) {
+            for (int i = h & t.mask; t.names[i] != null; i = (i + 1) & t.mask) {
+                if (t.hashes[i] == h && t.names[i].equals(nm))
+                    return true;
+            }
+            return false;
+        }
+
+        static synchronized void refresh() {
+            table = new Table(8, 0, table.generation + 1);
+        }
+
+        private PropertyCache() {}
+    }
+
     /**
      * Decodes a {@code String} into an {@code Integer}.
      * Accepts decimal, hexadecimal, and octal numbers given
@@ -1363,7 +2630,6 @@ public final class Integer extends Number implements Comparable<Integer> {
         int radix = 10;
         int index = 0;
         boolean negative = false;
-        Integer result;
 
         if (nm.length() == 0)
             throw new NumberFormatException("Zero length string");
@@ -1392,18 +2658,18 @@ public final class Integer extends Number implements Comparable<Integer> {
         if (nm.startsWith("-", index) || nm.startsWith("+", index))
             throw new NumberFormatException("Sign character in wrong position");
 
-        try {
-            result = Integer.valueOf(nm.substring(index), radix);
-            result = negative ? Integer.valueOf(-result.intValue()) : result;
-        } catch (NumberFormatException e) {
-            // If number is Integer.MIN_VALUE, we'll end up here. The next line
-            // handles this case, and causes any genuine format error to be
-            // rethrown.
-            String constant = negative ? ("-" + nm.substring(index))
-                                       : nm.substring(index);
-            result = Integer.valueOf(constant, radix);
-        }
-        return result;
+        // 直接在原字符串上以带符号的方式解析数字部分，Integer.MIN_VALUE 也不需要
+        // 先失败再拼接 "-" 重新解析，因此不会创建子串。
+        // Parse the digits in place with the sign already known, so
+        // Integer.MIN_VALUE needs no retry and no substring is created.
+        // 出错时报告整个字符串，包括符号和进制前缀
+        // failures report the whole string, sign and radix prefix included
+        if (index == nm.length())
+            throw forInputString(nm, 0, index);
+        long result = parseDigits(nm, index, nm.length(), radix, negative);
+        if (result < 0)
+            throw forInputString(nm, 0, nm.length());
+        return Integer.valueOf((int) result);
     }
 
     /**
@@ -1524,6 +2790,163 @@ public final class Integer extends Number implements Comparable<Integer> {
     }
 
 
+    /**
+     * 一个预先计算好的无符号除数。构造时根据除数计算出 "魔数"，之后每次
+     * 除法和取余都只需要乘法、加法和移位，不需要除法指令，也不需要像
+     * {@link Integer#divideUnsigned(int, int)} 那样扩展成 {@code long} 来除。
+     * 适合用同一个除数反复做除法的场景，比如分片和分桶。
+     * A precomputed unsigned divisor. The constructor derives a "magic
+     * number" from the divisor, after which every quotient and remainder
+     * takes a multiply, an add and shifts instead of a division, and no
+     * widening to {@code long} division as in
+     * {@link Integer#divideUnsigned(int, int)}. Useful when the same
+     * divisor is applied over and over, as in sharding and bucketing.
+     *
+     * <p>结果和 {@link Integer#divideUnsigned(int, int)} 以及
+     * {@link Integer#remainderUnsigned(int, int)} 完全相同。
+     * <p>Results are identical to {@link Integer#divideUnsigned(int, int)}
+     * and {@link Integer#remainderUnsigned(int, int)}.
+     *
+     * <p>实现使用的是 Granlund 和 Montgomery 的方法(见 Integer.toString 处引用的
+     * 论文，图 4.1): 对 N = 32，l = ceil(log2(d))，
+     * m' = floor(2<sup>N</sup> * (2<sup>l</sup> - d) / d) + 1，那么
+     * t = MULUH(m', n)，q = (t + ((n - t) &gt;&gt;&gt; 1)) &gt;&gt;&gt; (l - 1)。
+     * 2 的幂和大于 2<sup>31</sup> 的除数单独处理。
+     * <p>Implementation note: this is the method of Granlund and Montgomery
+     * (the paper cited in Integer's formatting code, Figure 4.1): with
+     * N = 32 and l = ceil(log2(d)),
+     * m' = floor(2<sup>N</sup> * (2<sup>l</sup> - d) / d) + 1,
+     * t = MULUH(m', n) and q = (t + ((n - t) &gt;&gt;&gt; 1)) &gt;&gt;&gt; (l - 1).
+     * Powers of two and divisors of 2<sup>31</sup> or more are handled
+     * separately.
+     *
+     * @see Integer#divideUnsigned(int, int)
+     * @see Integer#remainderUnsigned(int, int)
+     */
+    public static final class UnsignedDivisor {
+        /** 2 的幂，直接移位 */
+        private static final int POWER_OF_TWO = 0;
+        /** 最高位是 1，商只能是 0 或 1 */
+        private static final int TOP_BIT = 1;
+        /** 一般情况，乘以魔数 */
+        private static final int MAGIC = 2;
+
+        private final int divisor;
+        private final int kind;
+        private final long magic;
+        private final int shift;
+
+        private UnsignedDivisor(int divisor) {
+            this.divisor = divisor;
+            if ((divisor & (divisor - 1)) == 0) {
+                kind = POWER_OF_TWO;
+                magic = 0;
+                shift = numberOfTrailingZeros(divisor);
+            } else if (divisor < 0) {
+                kind = TOP_BIT;
+                magic = 0;
+                shift = 0;
+            } else {
+                // 3 <= divisor < 2^31 并且不是 2 的幂，所以 2 <= l <= 31
+                // 3 <= divisor < 2^31 and not a power of two, so 2 <= l <= 31
+                int l = Integer.SIZE - numberOfLeadingZeros(divisor - 1);
+                kind = MAGIC;
+                magic = (((1L << l) - divisor) << 32) / divisor + 1;
+                shift = l - 1;
+            }
+        }
+
+        /**
+         * 返回除以 {@code divisor} 的预先计算好的除数，{@code divisor} 当做无符号数。
+         * Returns a precomputed divisor for {@code divisor}, interpreted as
+         * an unsigned value.
+         *
+         * @param divisor 除数
+         *                the value doing the dividing
+         * @return 预先计算好的除数
+         *         the precomputed divisor
+         * @throws ArithmeticException 如果 {@code divisor} 是零
+         *         if {@code divisor} is zero
+         */
+        public static UnsignedDivisor of(int divisor) {
+            if (divisor == 0)
+                throw new ArithmeticException("/ by zero");
+            return new UnsignedDivisor(divisor);
+        }
+
+        /**
+         * 返回除数。
+         * Returns the divisor.
+         *
+         * @return 除数，当做无符号数
+         *         the divisor, to be interpreted as an unsigned value
+         */
+        public int divisor() {
+            return divisor;
+        }
+
+        /**
+         * 返回 {@code dividend} 除以除数的无符号商，等同于
+         * {@code Integer.divideUnsigned(dividend, divisor())}。
+         * Returns the unsigned quotient of {@code dividend} divided by this
+         * divisor, exactly as {@code Integer.divideUnsigned(dividend, divisor())}.
+         *
+         * @param dividend 被除数
+         *                 the value to be divided
+         * @return 无符号商
+         *         the unsigned quotient
+         */
+        public int divide(int dividend) {
+            switch (kind) {
+                case POWER_OF_TWO:
+                    return dividend >>> shift;
+                case TOP_BIT:
+                    return (dividend + MIN_VALUE >= divisor + MIN_VALUE) ? 1 : 0;
+                default:
+                    long n = toUnsignedLong(dividend);
+                    long t = (magic * n) >>> 32;
+                    return (int) ((t + ((n - t) >>> 1)) >>> shift);
+            }
+        }
+
+        /**
+         * 返回 {@code dividend} 除以除数的无符号余数，等同于
+         * {@code Integer.remainderUnsigned(dividend, divisor())}。
+         * Returns the unsigned remainder of {@code dividend} divided by this
+         * divisor, exactly as
+         * {@code Integer.remainderUnsigned(dividend, divisor())}.
+         *
+         * @param dividend 被除数
+         *                 the value to be divided
+         * @return 无符号余数
+         *         the unsigned remainder
+         */
+        public int remainder(int dividend) {
+            return dividend - divide(dividend) * divisor;
+        }
+
+        /**
+         * 除数相同的两个对象相等。
+         * Two divisors are equal if they divide by the same value.
+         */
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof UnsignedDivisor
+                && ((UnsignedDivisor) obj).divisor == divisor;
+        }
+
+        @Override
+        public int hashCode() {
+            return divisor;
+        }
+
+        @Override
+        public String toString() {
+            return "UnsignedDivisor[" + toUnsignedString(divisor) + "]";
+        }
+    }
+
+
     // Bit twiddling
 
     /**
@@ -1773,6 +3196,424 @@ public final class Integer extends Number implements Comparable<Integer> {
                ((i << 24));
     }
 
+    /**
+     * 返回 {@code a} 中 {@code [fromIndex, toIndex)} 范围内所有值的二进制补码
+     * 表示里 1 的总个数，也就是对这些值调用 {@link #bitCount(int)} 之和。
+     * Returns the total number of one-bits in the two's complement binary
+     * representations of {@code a[fromIndex, toIndex)}, i.e. the sum of
+     * {@link #bitCount(int)} over the range.
+     *
+     * <p>每次把两个 int 拼成一个 long 交给 {@link Long#bitCount(long)}，并且
+     * 循环展开成每次处理四个值，这样 popcount 指令的数量减半。
+     * <p>Pairs of ints are joined into a long for
+     * {@link Long#bitCount(long)} and the loop is unrolled four values at a
+     * time, halving the number of population counts.
+     *
+     * @param a 要计数的数组
+     *          the array whose bits are to be counted
+     * @param fromIndex 第一个元素的下标(包含)
+     *                  the index of the first element, inclusive
+     * @param toIndex 最后一个元素的下标(不包含)
+     *                the index of the last element, exclusive
+     * @return 范围内 1 的总个数
+     *         the number of one-bits in the range
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *         if {@code fromIndex < 0} or {@code toIndex > a.length}
+     * @see #bitCount(int)
+     */
+    public static long bitCount(int[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        long count = 0;
+        int i = fromIndex;
+        for (int end = toIndex - 3; i < end; i += 4) {
+            count += Long.bitCount(((long) a[i] << 32) | (a[i + 1] & 0xffffffffL))
+                   + Long.bitCount(((long) a[i + 2] << 32) | (a[i + 3] & 0xffffffffL));
+        }
+        for (; i < toIndex; i++) {
+            count += bitCount(a[i]);
+        }
+        return count;
+    }
+
+    /**
+     * 对 {@code src} 的每个元素调用 {@link #reverse(int)}，结果写到 {@code dst}
+     * 相同的下标上。{@code src} 和 {@code dst} 可以是同一个数组。
+     * Stores {@link #reverse(int)} of every element of {@code src} at the
+     * same index of {@code dst}. {@code src} and {@code dst} may be the same
+     * array.
+     *
+     * @param src 要反转的值
+     *            the values to be reversed
+     * @param dst 结果数组，长度不能小于 {@code src}
+     *            the destination, at least as long as {@code src}
+     * @throws ArrayIndexOutOfBoundsException
+     *         if {@code dst} is shorter than {@code src}
+     * @see #reverse(int)
+     */
+    public static void reverse(int[] src, int[] dst) {
+        int n = src.length;
+        if (dst.length < n)
+            throw new ArrayIndexOutOfBoundsException(n);
+        int i = 0;
+        for (int end = n - 3; i < end; i += 4) {
+            dst[i]     = reverse(src[i]);
+            dst[i + 1] = reverse(src[i + 1]);
+            dst[i + 2] = reverse(src[i + 2]);
+            dst[i + 3] = reverse(src[i + 3]);
+        }
+        for (; i < n; i++) {
+            dst[i] = reverse(src[i]);
+        }
+    }
+
+    /**
+     * 对 {@code src} 的每个元素调用 {@link #reverseBytes(int)}，结果写到
+     * {@code dst} 相同的下标上。{@code src} 和 {@code dst} 可以是同一个数组。
+     * Stores {@link #reverseBytes(int)} of every element of {@code src} at
+     * the same index of {@code dst}. {@code src} and {@code dst} may be the
+     * same array.
+     *
+     * @param src 要反转字节序的值
+     *            the values whose bytes are to be reversed
+     * @param dst 结果数组，长度不能小于 {@code src}
+     *            the destination, at least as long as {@code src}
+     * @throws ArrayIndexOutOfBoundsException
+     *         if {@code dst} is shorter than {@code src}
+     * @see #reverseBytes(int)
+     */
+    public static void reverseBytes(int[] src, int[] dst) {
+        int n = src.length;
+        if (dst.length < n)
+            throw new ArrayIndexOutOfBoundsException(n);
+        int i = 0;
+        for (int end = n - 3; i < end; i += 4) {
+            dst[i]     = reverseBytes(src[i]);
+            dst[i + 1] = reverseBytes(src[i + 1]);
+            dst[i + 2] = reverseBytes(src[i + 2]);
+            dst[i + 3] = reverseBytes(src[i + 3]);
+        }
+        for (; i < n; i++) {
+            dst[i] = reverseBytes(src[i]);
+        }
+    }
+
+    /**
+     * 对 {@code src} 的每个元素调用 {@link #numberOfLeadingZeros(int)}，结果写到
+     * {@code dst} 相同的下标上。{@code src} 和 {@code dst} 可以是同一个数组。
+     * Stores {@link #numberOfLeadingZeros(int)} of every element of
+     * {@code src} at the same index of {@code dst}. {@code src} and
+     * {@code dst} may be the same array.
+     *
+     * @param src 要计算前导零个数的值
+     *            the values whose leading zeros are to be counted
+     * @param dst 结果数组，长度不能小于 {@code src}
+     *            the destination, at least as long as {@code src}
+     * @throws ArrayIndexOutOfBoundsException
+     *         if {@code dst} is shorter than {@code src}
+     * @see #numberOfLeadingZeros(int)
+     */
+    public static void numberOfLeadingZeros(int[] src, int[] dst) {
+        int n = src.length;
+        if (dst.length < n)
+            throw new ArrayIndexOutOfBoundsException(n);
+        int i = 0;
+        for (int end = n - 3; i < end; i += 4) {
+            dst[i]     = numberOfLeadingZeros(src[i]);
+            dst[i + 1] = numberOfLeadingZeros(src[i + 1]);
+            dst[i + 2] = numberOfLeadingZeros(src[i + 2]);
+            dst[i + 3] = numberOfLeadingZeros(src[i + 3]);
+        }
+        for (; i < n; i++) {
+            dst[i] = numberOfLeadingZeros(src[i]);
+        }
+    }
+
+    /**
+     * 使用 ZigZag 编码把有符号整数映射成无符号整数，绝对值小的负数会得到小的
+     * 结果: 0 -&gt; 0, -1 -&gt; 1, 1 -&gt; 2, -2 -&gt; 3 ...，这样和
+     * {@link #writeVarInt(int, byte[], int)} 配合时负数也只占很少的字节。
+     * Maps a signed int to an unsigned one with ZigZag encoding, so that
+     * values of small magnitude stay small: 0 -&gt; 0, -1 -&gt; 1, 1 -&gt; 2,
+     * -2 -&gt; 3 and so on. Combined with
+     * {@link #writeVarInt(int, byte[], int)} this keeps small negative
+     * numbers short.
+     *
+     * @param i 要编码的值
+     *          the value to encode
+     * @return ZigZag 编码后的值
+     *         the ZigZag-encoded value
+     * @see #zigZagDecode(int)
+     */
+    public static int zigZagEncode(int i) {
+        return (i << 1) ^ (i >> 31);
+    }
+
+    /**
+     * {@link #zigZagEncode(int)} 的逆运算。
+     * Reverses {@link #zigZagEncode(int)}.
+     *
+     * @param i ZigZag 编码后的值
+     *          a ZigZag-encoded value
+     * @return 原来的有符号值
+     *         the original signed value
+     * @see #zigZagEncode(int)
+     */
+    public static int zigZagDecode(int i) {
+        return (i >>> 1) ^ -(i & 1);
+    }
+
+    /**
+     * 返回把 {@code i} 当做无符号数写成变长整数(LEB128)需要的字节数，1 到 5。
+     * Returns the number of bytes, 1 to 5, of the variable-length (LEB128)
+     * encoding of {@code i} treated as unsigned.
+     *
+     * @param i 要编码的值
+     *          the value to encode
+     * @return 编码后的字节数
+     *         the encoded length in bytes
+     */
+    public static int varIntSize(int i) {
+        return (Integer.SIZE - numberOfLeadingZeros(i | 1) + 6) / 7;
+    }
+
+    /**
+     * 把 {@code i} 当做无符号数，以变长整数(LEB128)的格式写入到 {@code dst} 从
+     * {@code offset} 开始的位置: 每个字节保存 7 位，低位在前，除了最后一个字节
+     * 外最高位都是 1。返回写入的字节数。有符号的值可以先用
+     * {@link #zigZagEncode(int)} 转换。
+     * Writes {@code i}, treated as unsigned, in variable-length (LEB128)
+     * format into {@code dst} starting at {@code offset}: seven bits per
+     * byte, least significant group first, with the high bit set on every
+     * byte but the last. Returns the number of bytes written. Signed values
+     * can be passed through {@link #zigZagEncode(int)} first.
+     *
+     * @param i      要写入的值
+     *               the value to write
+     * @param dst    目标数组
+     *               the destination array
+     * @param offset {@code dst} 中开始写入的位置
+     *               the start offset in {@code dst}
+     * @return 写入的字节数，1 到 5
+     *         the number of bytes written, 1 to 5
+     * @throws IndexOutOfBoundsException 如果 {@code dst} 放不下，这种情况下
+     *         {@code dst} 不会被修改
+     *         if {@code dst} does not have room; it is
+     *         left unmodified in that case
+     * @see #readVarInt(byte[], int)
+     */
+    public static int writeVarInt(int i, byte[] dst, int offset) {
+        int size = varIntSize(i);
+        checkRoom(dst.length, offset, size);
+        int end = offset + size - 1;
+        for (; offset < end; offset++) {
+            dst[offset] = (byte) (i | 0x80);
+            i >>>= 7;
+        }
+        dst[end] = (byte) i;
+        return size;
+    }
+
+    /**
+     * 和 {@link #writeVarInt(int, byte[], int)} 相同，只是写入到缓冲区的当前
+     * 位置，写完之后位置向后移动。
+     * Same as {@link #writeVarInt(int, byte[], int)}, but writes at the
+     * current position of the buffer and advances it.
+     *
+     * @param i   要写入的值
+     *            the value to write
+     * @param dst 目标缓冲区
+     *            the destination buffer
+     * @return 写入的字节数，1 到 5
+     *         the number of bytes written, 1 to 5
+     * @throws BufferOverflowException 如果剩余空间不够，这种情况下缓冲区不会被修改
+     *         if there is not enough room remaining;
+     *         the buffer is left unmodified in that case
+     * @throws java.nio.ReadOnlyBufferException 如果缓冲区是只读的
+     *         if the buffer is read-only
+     * @see #readVarInt(ByteBuffer)
+     */
+    public static int writeVarInt(int i, ByteBuffer dst) {
+        int size = varIntSize(i);
+        if (dst.remaining() < size)
+            throw new BufferOverflowException();
+        for (int k = 1; k < size; k++) {
+            dst.put((byte) (i | 0x80));
+            i >>>= 7;
+        }
+        dst.put((byte) i);
+        return size;
+    }
+
+    /**
+     * 从 {@code src} 的 {@code offset} 位置读取一个变长整数(LEB128)，返回它的
+     * 值。读取的字节数可以用 {@link #varIntSize(int)} 对结果计算出来(编码
+     * 必须是最短的形式，{@link #writeVarInt(int, byte[], int)} 写出的总是)。
+     * Reads a variable-length (LEB128) int from {@code src} at
+     * {@code offset} and returns its value. The number of bytes consumed is
+     * {@link #varIntSize(int)} of the result, provided the encoding is the
+     * shortest one, which {@link #writeVarInt(int, byte[], int)} always
+     * writes.
+     *
+     * @param src    源数组
+     *               the source array
+     * @param offset 变长整数开始的位置
+     *               the offset of the varint
+     * @return 读取的值，当做无符号数
+     *         the value read, to be interpreted as unsigned
+     * @throws IllegalArgumentException 如果编码超过 5 个字节，或者第 5 个字节
+     *         超出了 32 位
+     *         if the encoding is longer than five
+     *         bytes or its fifth byte overflows 32 bits
+     * @throws ArrayIndexOutOfBoundsException 如果编码超出了数组的末尾
+     *         if the encoding runs past the end of {@code src}
+     * @see #writeVarInt(int, byte[], int)
+     */
+    public static int readVarInt(byte[] src, int offset) {
+        return (int) decodeVarInt(src, offset);
+    }
+
+    /**
+     * 读取 {@code offset} 处的变长整数，返回的 long 高 32 位是编码之后的位置，
+     * 低 32 位是值。编码不必是最短的形式。
+     * Decodes the varint at {@code offset} and returns the offset just past
+     * it in the high 32 bits and the value in the low 32 bits. The encoding
+     * need not be the shortest one.
+     */
+    private static long decodeVarInt(byte[] src, int offset) {
+        int b = src[offset];
+        if (b >= 0)
+            return ((long) (offset + 1) << 32) | b;
+        int result = b & 0x7f;
+        for (int shift = 7; shift < 28; shift += 7) {
+            b = src[++offset];
+            result |= (b & 0x7f) << shift;
+            if (b >= 0)
+                return ((long) (offset + 1) << 32) | (result & 0xffffffffL);
+        }
+        b = src[++offset];
+        if ((b & 0xf0) != 0)
+            throw malformedVarInt(offset);
+        return ((long) (offset + 1) << 32) | ((result | (b << 28)) & 0xffffffffL);
+    }
+
+    /**
+     * 从缓冲区的当前位置读取一个变长整数(LEB128)，读完之后位置移动到编码之后。
+     * Reads a variable-length (LEB128) int at the current position of the
+     * buffer and advances the position past it.
+     *
+     * @param src 源缓冲区
+     *            the source buffer
+     * @return 读取的值，当做无符号数
+     *         the value read, to be interpreted as unsigned
+     * @throws IllegalArgumentException 如果编码超过 5 个字节，或者第 5 个字节
+     *         超出了 32 位
+     *         if the encoding is longer than five
+     *         bytes or its fifth byte overflows 32 bits
+     * @throws BufferUnderflowException 如果编码超出了缓冲区的限制
+     *         if the encoding runs past the buffer's limit
+     * @see #writeVarInt(int, ByteBuffer)
+     */
+    public static int readVarInt(ByteBuffer src) {
+        int b = src.get();
+        if (b >= 0)
+            return b;
+        int result = b & 0x7f;
+        for (int shift = 7; shift < 28; shift += 7) {
+            b = src.get();
+            result |= (b & 0x7f) << shift;
+            if (b >= 0)
+                return result;
+        }
+        b = src.get();
+        if ((b & 0xf0) != 0)
+            throw malformedVarInt(src.position() - 1);
+        return result | (b << 28);
+    }
+
+    /**
+     * 从 {@code src} 的 {@code offset} 位置开始连续读取 {@code count} 个变长整数
+     * (LEB128)，依次存到 {@code dst} 从 {@code dstOffset} 开始的位置，返回最后
+     * 一个编码之后的位置。
+     * Reads {@code count} consecutive variable-length (LEB128) ints from
+     * {@code src} starting at {@code offset} into {@code dst} starting at
+     * {@code dstOffset}, and returns the offset just past the last one.
+     *
+     * <p>只要剩下的字节不少于 5 个，就一次取出 5 个字节拼成一个 long，用最高位
+     * 组成的掩码的 {@link Long#numberOfTrailingZeros(long)} 算出编码长度，然后
+     * 用固定的移位把每个字节的低 7 位拼在一起，每个值只需要很少的分支。
+     * 最后不足 5 个字节时才逐个字节读取。
+     * <p>While at least five bytes remain, five bytes are gathered into a
+     * long, the encoded length is found with
+     * {@link Long#numberOfTrailingZeros(long)} of the stop-bit mask and the
+     * seven-bit groups are merged with fixed shifts, so each value takes
+     * very few branches. Only the last few bytes are read one at a time.
+     *
+     * @param src       源数组
+     *                  the source array
+     * @param offset    第一个编码开始的位置
+     *                  the offset of the first varint
+     * @param dst       存放结果的数组
+     *                  the destination for the decoded values
+     * @param dstOffset {@code dst} 中开始存放的位置
+     *                  the start offset in {@code dst}
+     * @param count     要读取的个数
+     *                  the number of values to read
+     * @return 最后一个编码之后的位置
+     *         the offset just past the last varint read
+     * @throws IllegalArgumentException 如果有编码不合法
+     *         if an encoding is malformed
+     * @throws IndexOutOfBoundsException 如果编码超出了 {@code src} 的末尾，
+     *         或者 {@code dst} 放不下 {@code count} 个值
+     *         if an encoding runs past the end of
+     *         {@code src} or {@code dst} has no room for {@code count} values
+     * @see #readVarInt(byte[], int)
+     */
+    public static int readVarInts(byte[] src, int offset, int[] dst, int dstOffset, int count) {
+        checkRoom(dst.length, dstOffset, count);
+        if (offset < 0)
+            throw new ArrayIndexOutOfBoundsException(offset);
+        int end = dstOffset + count;
+        int fastLimit = src.length - 5;
+        int k = dstOffset;
+        for (; k < end && offset <= fastLimit; k++) {
+            long w = (src[offset] & 0xffL)
+                   | (src[offset + 1] & 0xffL) << 8
+                   | (src[offset + 2] & 0xffL) << 16
+                   | (src[offset + 3] & 0xffL) << 24
+                   | (src[offset + 4] & 0xffL) << 32;
+            // 最高位是 0 的字节是最后一个字节
+            // the first byte with a clear high bit ends the varint
+            long stops = ~w & 0x8080808080L;
+            if (stops == 0)
+                throw malformedVarInt(offset + 4);
+            int len = (Long.numberOfTrailingZeros(stops) >>> 3) + 1;
+            long v = (w & 0x7fL)
+                   | (w >>> 1) & (0x7fL << 7)
+                   | (w >>> 2) & (0x7fL << 14)
+                   | (w >>> 3) & (0x7fL << 21)
+                   | (w >>> 4) & (0x7fL << 28);
+            v &= (1L << (7 * len)) - 1;
+            if ((v >>> 32) != 0)
+                throw malformedVarInt(offset + 4);
+            dst[k] = (int) v;
+            offset += len;
+        }
+        // 剩下的逐个字节读，按实际读到的字节数前进，和上面一样接受非最短的编码
+        // read the rest a byte at a time, advancing by the bytes actually
+        // read so that padded encodings decode as in the loop above
+        for (; k < end; k++) {
+            long r = decodeVarInt(src, offset);
+            dst[k] = (int) r;
+            offset = (int) (r >>> 32);
+        }
+        return offset;
+    }
+
+    private static IllegalArgumentException malformedVarInt(int offset) {
+        return new IllegalArgumentException("Malformed varint at offset " + offset);
+    }
+
     /**
      * Adds two integers together as per the + operator.
      *
@@ -0,0 +1,824 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * A {@link LinkedHashMap} replacement that keeps no per-entry node
+ * objects.  Keys, values and hashes live in parallel arrays indexed by a
+ * <i>slot</i> number; the iteration order is a doubly-linked list of slot
+ * numbers kept in two {@code int} arrays, and the hash table is an
+ * open-addressing {@code int} array of slot numbers probed linearly.  An
+ * entry therefore costs five array elements plus its share of the table,
+ * instead of a {@code LinkedHashMapEntry} with its object header and six
+ * fields plus a table reference.
+ *
+ * <p>Each table word also carries the high bits of its entry's hash, so a
+ * probe rejects almost every other key without touching the slot arrays,
+ * and a key is stored next to its value so a hit usually reads one cache
+ * line for both.  The slot arrays grow by half their size, independently
+ * of the table, so they carry less slack than a doubling table would.
+ *
+ * <p>Like {@code LinkedHashMap}, the map is ordered either by insertion or,
+ * if created with <tt>accessOrder</tt> set, by access, and the
+ * {@link #removeEldestEntry(Map.Entry)} method may be overridden to remove
+ * stale mappings when new ones are added.  {@link #eldest()} returns the
+ * first entry of the order.  Null keys and values are permitted.
+ *
+ * <p>Removal uses backward-shift deletion, so the table never holds
+ * tombstones, and freed slots are reused by later insertions.  Slots are
+ * allocated in insertion order, so iterating a map that is mostly appended
+ * to walks the arrays nearly sequentially.
+ *
+ * <p>The {@link Map.Entry} objects returned by the entry-set iterator and
+ * by {@link #eldest()} are views of a slot: they read and write the map
+ * directly and become meaningless once their mapping is removed.  The
+ * key-set and values iterators, and {@link #forEach(BiConsumer)}, allocate
+ * nothing per entry.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators of the collection views are <em>fail-fast</em> in the same
+ * way as those of {@code LinkedHashMap}; in an access-ordered map, querying
+ * with {@code get} is a structural modification.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see LinkedHashMap
+ */
+public class CompactLinkedHashMap<K,V> extends AbstractMap<K,V>
+    implements Cloneable, Serializable
+{
+    private static final long serialVersionUID = 5416820364125738170L;
+
+    /**
+     * The default table length; must be a power of two.
+     */
+    static final int DEFAULT_TABLE_LENGTH = 16;
+
+    /**
+     * The default number of slots.
+     */
+    static final int DEFAULT_SLOTS = 12;
+
+    /**
+     * The largest table length.  The map holds at most three quarters of
+     * this many entries.
+     */
+    static final int MAXIMUM_TABLE_LENGTH = 1 << 30;
+
+    /**
+     * Marks the end of a slot list.
+     */
+    static final int NIL = -1;
+
+    /**
+     * Open-addressing table.  A used bucket holds {@code slot + 1} in the
+     * bits covered by the table mask and the entry's hash in the bits
+     * above it; 0 marks an empty bucket.  The length is a power of two and
+     * at least a third larger than the slot arrays, so a probe always
+     * reaches an empty bucket and {@code slot + 1} always fits the mask.
+     */
+    transient int[] table;
+
+    /** Per-slot key and value, at indexes {@code 2 * slot} and one after. */
+    transient Object[] entries;
+
+    /** Per-slot mixed hash. */
+    transient int[] hashes;
+
+    /**
+     * Per-slot links of the iteration order.  The {@code after} links of
+     * free slots chain the free list.
+     */
+    transient int[] before, after;
+
+    /** The eldest and youngest slots, or {@link #NIL}. */
+    transient int head = NIL, tail = NIL;
+
+    /** The first free slot below {@link #used}, or {@link #NIL}. */
+    transient int free = NIL;
+
+    /** Slots at or above this index have never been allocated. */
+    transient int used;
+
+    transient int size;
+
+    transient int modCount;
+
+    /**
+     * The iteration ordering method for this map: <tt>true</tt>
+     * for access-order, <tt>false</tt> for insertion-order.
+     */
+    final boolean accessOrder;
+
+    /**
+     * Constructs an empty insertion-ordered <tt>CompactLinkedHashMap</tt>
+     * instance with room for the specified number of mappings.
+     *
+     * @param  initialCapacity the number of mappings to hold before resizing
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public CompactLinkedHashMap(int initialCapacity) {
+        this(initialCapacity, false);
+    }
+
+    /**
+     * Constructs an empty insertion-ordered <tt>CompactLinkedHashMap</tt>
+     * instance with the default initial capacity.
+     */
+    public CompactLinkedHashMap() {
+        this(0, false);
+    }
+
+    /**
+     * Constructs an insertion-ordered <tt>CompactLinkedHashMap</tt> instance
+     * with the same mappings as the specified map, in the order of its
+     * entry-set iterator.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public CompactLinkedHashMap(Map<? extends K, ? extends V> m) {
+        this(m.size(), false);
+        putAll(m);
+    }
+
+    /**
+     * Constructs an empty <tt>CompactLinkedHashMap</tt> instance with room
+     * for the specified number of mappings and the specified ordering mode.
+     *
+     * @param  initialCapacity the number of mappings to hold before resizing
+     * @param  accessOrder     the ordering mode - <tt>true</tt> for
+     *         access-order, <tt>false</tt> for insertion-order
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public CompactLinkedHashMap(int initialCapacity, boolean accessOrder) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        this.accessOrder = accessOrder;
+        allocate(Math.max(initialCapacity, DEFAULT_SLOTS));
+    }
+
+    /**
+     * Returns the smallest table length that holds {@code capacity}
+     * mappings.
+     */
+    static int tableLengthFor(int capacity) {
+        int n = DEFAULT_TABLE_LENGTH;
+        while (slotsFor(n) < capacity && n < MAXIMUM_TABLE_LENGTH)
+            n <<= 1;
+        return n;
+    }
+
+    /**
+     * Returns the number of slots backing a table of length {@code n}.
+     */
+    static int slotsFor(int n) {
+        return n - (n >>> 2);
+    }
+
+    private void allocate(int slots) {
+        slots = Math.min(slots, slotsFor(MAXIMUM_TABLE_LENGTH));
+        table = new int[tableLengthFor(slots)];
+        entries = new Object[slots << 1];
+        hashes = new int[slots];
+        before = new int[slots];
+        after = new int[slots];
+    }
+
+    static int hash(Object key) {
+        return (key == null) ? 0 : Integer.mix(key.hashCode());
+    }
+
+    // Table
+
+    /**
+     * Returns the table index holding {@code key}, or the complement of
+     * the empty bucket where it would be inserted.
+     */
+    final int find(Object key, int hash) {
+        int[] tab = table;
+        int mask = tab.length - 1, tag = hash & ~mask;
+        Object[] es = entries;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int t = tab[i];
+            if (t == 0)
+                return ~i;
+            Object k;
+            if ((t & ~mask) == tag &&
+                ((k = es[((t & mask) - 1) << 1]) == key ||
+                 (key != null && key.equals(k))))
+                return i;
+        }
+    }
+
+    /**
+     * Returns the slot holding {@code key}, or {@link #NIL}.
+     */
+    final int slotOf(Object key) {
+        int i = find(key, hash(key));
+        return (i < 0) ? NIL : slotAt(i);
+    }
+
+    /**
+     * Returns the slot held in the used bucket {@code i}.
+     */
+    final int slotAt(int i) {
+        int[] tab = table;
+        return (tab[i] & (tab.length - 1)) - 1;
+    }
+
+    /**
+     * Empties bucket {@code i}, shifting back the entries after it whose
+     * probe sequence passes through it.
+     */
+    private void deleteBucket(int i) {
+        int[] tab = table;
+        int mask = tab.length - 1;
+        int[] hs = hashes;
+        for (int j = i; ; ) {
+            j = (j + 1) & mask;
+            int t = tab[j];
+            if (t == 0)
+                break;
+            int home = hs[(t & mask) - 1] & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                tab[i] = t;
+                i = j;
+            }
+        }
+        tab[i] = 0;
+    }
+
+    /**
+     * Grows the slot arrays by half, first doubling the table if it cannot
+     * index more slots.  Slot numbers are unchanged.
+     */
+    private void grow() {
+        int n = table.length, max = slotsFor(n), slots = hashes.length;
+        if (slots >= max) {
+            if (n >= MAXIMUM_TABLE_LENGTH)
+                throw new OutOfMemoryError("Required map size too large");
+            rehash(n << 1);
+            max = slotsFor(n << 1);
+        }
+        int newSlots = (int) Math.min((long) max, slots + (slots >> 1) + 1L);
+        entries = Arrays.copyOf(entries, newSlots << 1);
+        hashes = Arrays.copyOf(hashes, newSlots);
+        before = Arrays.copyOf(before, newSlots);
+        after = Arrays.copyOf(after, newSlots);
+    }
+
+    private void rehash(int newLength) {
+        int[] tab = new int[newLength];
+        int mask = newLength - 1;
+        int[] hs = hashes, as = after;
+        for (int s = head; s != NIL; s = as[s]) {
+            int h = hs[s], i = h & mask;
+            while (tab[i] != 0)
+                i = (i + 1) & mask;
+            tab[i] = (h & ~mask) | (s + 1);
+        }
+        table = tab;
+    }
+
+    // Slots and links
+
+    private void linkLast(int s) {
+        int last = tail;
+        before[s] = last;
+        after[s] = NIL;
+        if (last == NIL)
+            head = s;
+        else
+            after[last] = s;
+        tail = s;
+    }
+
+    private void unlink(int s) {
+        int b = before[s], a = after[s];
+        if (b == NIL)
+            head = a;
+        else
+            after[b] = a;
+        if (a == NIL)
+            tail = b;
+        else
+            before[a] = b;
+    }
+
+    /**
+     * Moves slot {@code s} to the end of the order if this map is
+     * access-ordered.
+     */
+    final void afterAccess(int s) {
+        if (accessOrder && tail != s) {
+            unlink(s);
+            linkLast(s);
+            ++modCount;
+        }
+    }
+
+    /**
+     * Inserts a new mapping at the empty bucket {@code ~i} and returns its
+     * slot.  The eviction check is left to the caller.
+     */
+    private int insert(int i, K key, int hash, V value) {
+        int s;
+        if ((s = free) != NIL)
+            free = after[s];
+        else {
+            if (used == hashes.length) {
+                grow();
+                i = find(key, hash);
+            }
+            s = used++;
+        }
+        entries[s << 1] = key;
+        entries[(s << 1) + 1] = value;
+        hashes[s] = hash;
+        table[~i] = (hash & ~(table.length - 1)) | (s + 1);
+        linkLast(s);
+        ++size;
+        ++modCount;
+        return s;
+    }
+
+    /**
+     * Removes the mapping in bucket {@code i} and returns the value it
+     * held.
+     */
+    @SuppressWarnings("unchecked")
+    final V removeBucket(int i) {
+        int s = slotAt(i);
+        V old = (V) entries[(s << 1) + 1];
+        deleteBucket(i);
+        unlink(s);
+        entries[s << 1] = null;
+        entries[(s << 1) + 1] = null;
+        after[s] = free;
+        free = s;
+        --size;
+        ++modCount;
+        return old;
+    }
+
+    private void afterInsert() {
+        int first;
+        if ((first = head) != NIL && removeEldestEntry(new SlotEntry(first))) {
+            removeBucket(find(entries[first << 1], hashes[first]));
+        }
+    }
+
+    // Map operations
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return find(key, hash(key)) >= 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(Object value) {
+        Object[] es = entries;
+        int[] as = after;
+        for (int s = head; s != NIL; s = as[s]) {
+            Object v = es[(s << 1) + 1];
+            if (v == value || (value != null && value.equals(v)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     * In an access-ordered map a successful lookup moves the mapping to
+     * the end of the order.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int s;
+        if ((s = slotOf(key)) == NIL)
+            return null;
+        afterAccess(s);
+        return (V) entries[(s << 1) + 1];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        int s;
+        if ((s = slotOf(key)) == NIL)
+            return defaultValue;
+        afterAccess(s);
+        return (V) entries[(s << 1) + 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        int hash = hash(key);
+        int i = find(key, hash);
+        if (i >= 0) {
+            int s = slotAt(i), v = (s << 1) + 1;
+            V old = (V) entries[v];
+            entries[v] = value;
+            afterAccess(s);
+            return old;
+        }
+        insert(i, key, hash, value);
+        afterInsert();
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(K key, V value) {
+        int hash = hash(key);
+        int i = find(key, hash);
+        if (i >= 0) {
+            int s = slotAt(i), v = (s << 1) + 1;
+            V old = (V) entries[v];
+            if (old == null)
+                entries[v] = value;
+            afterAccess(s);
+            return old;
+        }
+        insert(i, key, hash, value);
+        afterInsert();
+        return null;
+    }
+
+    public V remove(Object key) {
+        int i = find(key, hash(key));
+        return (i < 0) ? null : removeBucket(i);
+    }
+
+    public void clear() {
+        if (size > 0 || used > 0) {
+            Arrays.fill(table, 0);
+            Arrays.fill(entries, 0, used << 1, null);
+            head = tail = free = NIL;
+            used = 0;
+            size = 0;
+            ++modCount;
+        }
+    }
+
+    /**
+     * Returns the eldest mapping of this map: the least recently inserted
+     * one, or in an access-ordered map the least recently accessed one.
+     * Returns {@code null} if the map is empty.  Calling this method does
+     * not count as an access.
+     *
+     * @return the eldest mapping, or {@code null} if the map is empty
+     */
+    public Map.Entry<K,V> eldest() {
+        int first;
+        return ((first = head) == NIL) ? null : new SlotEntry(first);
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map should remove its eldest entry.
+     * This method is invoked by <tt>put</tt> and <tt>putAll</tt> after
+     * inserting a new entry into the map, exactly as
+     * {@link LinkedHashMap#removeEldestEntry(Map.Entry)} is.  The entry
+     * passed in is a view of the eldest slot, valid only until this method
+     * returns.
+     *
+     * @param    eldest The least recently inserted entry in the map, or if
+     *           this is an access-ordered map, the least recently accessed
+     *           entry.
+     * @return   <tt>true</tt> if the eldest entry should be removed
+     *           from the map; <tt>false</tt> if it should be retained.
+     */
+    protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        Object[] es = entries;
+        int[] as = after;
+        for (int s = head; s != NIL; s = as[s])
+            action.accept((K) es[s << 1], (V) es[(s << 1) + 1]);
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (function == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        Object[] es = entries;
+        int[] as = after;
+        for (int s = head; s != NIL; s = as[s]) {
+            int k = s << 1;
+            es[k + 1] = function.apply((K) es[k], (V) es[k + 1]);
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a shallow copy of this <tt>CompactLinkedHashMap</tt>
+     * instance: the keys and values themselves are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object clone() {
+        CompactLinkedHashMap<K,V> result;
+        try {
+            result = (CompactLinkedHashMap<K,V>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        result.table = table.clone();
+        result.entries = entries.clone();
+        result.hashes = hashes.clone();
+        result.before = before.clone();
+        result.after = after.clone();
+        result.keySet = null;
+        result.valuesView = null;
+        result.entrySet = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    // Views
+
+    transient Set<K> keySet;
+    transient Collection<V> valuesView;
+    transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map, in
+     * iteration order.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<K> keySet() {
+        Set<K> ks;
+        return (ks = keySet) == null ? (keySet = new KeySet()) : ks;
+    }
+
+    final class KeySet extends AbstractSet<K> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactLinkedHashMap.this.clear(); }
+        public final Iterator<K> iterator()     { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            int i = find(key, hash(key));
+            if (i < 0)
+                return false;
+            removeBucket(i);
+            return true;
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map, in iteration order.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<V> values() {
+        Collection<V> vs;
+        return (vs = valuesView) == null ? (valuesView = new Values()) : vs;
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactLinkedHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map, in
+     * iteration order.  Each entry returned by its iterator is a view of
+     * one slot of the map.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactLinkedHashMap.this.clear(); }
+        public final Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            int s = slotOf(e.getKey());
+            return s != NIL && Objects.equals(entries[(s << 1) + 1], e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            int i = find(key, hash(key));
+            if (i < 0 || !Objects.equals(entries[(slotAt(i) << 1) + 1], e.getValue()))
+                return false;
+            removeBucket(i);
+            return true;
+        }
+    }
+
+    /**
+     * A view of one slot.
+     */
+    final class SlotEntry implements Map.Entry<K,V> {
+        final int index;
+
+        SlotEntry(int slot) {
+            this.index = slot << 1;
+        }
+
+        @SuppressWarnings("unchecked")
+        public K getKey() {
+            return (K) entries[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V) entries[index + 1];
+        }
+
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            V old = (V) entries[index + 1];
+            entries[index + 1] = value;
+            return old;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            return Objects.equals(getKey(), e.getKey()) &&
+                Objects.equals(getValue(), e.getValue());
+        }
+
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    abstract class SlotIterator {
+        int next;
+        int current;
+        int expectedModCount;
+
+        SlotIterator() {
+            next = head;
+            current = NIL;
+            expectedModCount = modCount;
+        }
+
+        public final boolean hasNext() {
+            return next != NIL;
+        }
+
+        final int nextSlot() {
+            int s = next;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (s == NIL)
+                throw new NoSuchElementException();
+            current = s;
+            next = after[s];
+            return s;
+        }
+
+        public final void remove() {
+            int s = current;
+            if (s == NIL)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = NIL;
+            removeBucket(find(entries[s << 1], hashes[s]));
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends SlotIterator implements Iterator<K> {
+        @SuppressWarnings("unchecked")
+        public final K next() { return (K) entries[nextSlot() << 1]; }
+    }
+
+    final class ValueIterator extends SlotIterator implements Iterator<V> {
+        @SuppressWarnings("unchecked")
+        public final V next() { return (V) entries[(nextSlot() << 1) + 1]; }
+    }
+
+    final class EntryIterator extends SlotIterator
+        implements Iterator<Map.Entry<K,V>> {
+        public final Map.Entry<K,V> next() { return new SlotEntry(nextSlot()); }
+    }
+
+    // Serialization
+
+    /**
+     * Saves this map to a stream.
+     *
+     * @serialData The ordering mode (boolean) and the number of mappings
+     *             (int), followed by the key (Object) and value (Object)
+     *             of each mapping in iteration order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        for (int e = head; e != NIL; e = after[e]) {
+            s.writeObject(entries[e << 1]);
+            s.writeObject(entries[(e << 1) + 1]);
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        head = tail = free = NIL;
+        allocate(Math.max(mappings, DEFAULT_SLOTS));
+        for (int i = 0; i < mappings; i++) {
+            K key = (K) s.readObject();
+            V value = (V) s.readObject();
+            int hash = hash(key);
+            int b = find(key, hash);
+            if (b >= 0)
+                entries[(slotAt(b) << 1) + 1] = value;
+            else
+                insert(b, key, hash, value);
+        }
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 把每行一个十进制整数的文本文件读入到 {@code int[]} 中。文件被映射到内存，
+ * 按换行符对齐切成若干块，每一块在 {@link ForkJoinPool} 上直接从映射的字节
+ * 用 {@link Integer#tryParseInt(CharSequence, int, int, int)} 解析，不会为每一行
+ * 创建 {@code String}。
+ * Loads a text file holding one decimal integer per line into an
+ * {@code int[]}. The file is memory-mapped and split into newline-aligned
+ * chunks, and each chunk is parsed on a {@link ForkJoinPool} straight from
+ * the mapped bytes with
+ * {@link Integer#tryParseInt(CharSequence, int, int, int)}, without
+ * creating a {@code String} per line.
+ *
+ * <p>行以 {@code '\n'} 结束，行尾的一个 {@code '\r'} 会被去掉，最后一行可以
+ * 没有换行符。一行的内容必须和 {@link Integer#parseInt(String)} 接受的格式
+ * 完全一致(不能有空白)，否则这一行被跳过，它在文件中的字节偏移会记录在
+ * {@link Result#malformedOffsets()} 中，而不会抛出异常。
+ * <p>Lines end with {@code '\n'}; a single trailing {@code '\r'} is
+ * stripped and the last line need not be terminated. A line must be
+ * exactly what {@link Integer#parseInt(String)} accepts, without
+ * surrounding whitespace; any other line is skipped and its byte offset in
+ * the file is recorded in {@link Result#malformedOffsets()} instead of
+ * throwing.
+ *
+ * @see Integer#tryParseInt(CharSequence, int, int, int)
+ */
+public final class IntColumnLoader {
+
+    /**
+     * 每一块的最小字节数，小文件不值得切分。
+     * The smallest chunk worth handing to its own task.
+     */
+    private static final int MIN_CHUNK = 1 << 20;
+
+    /**
+     * 每一块的最大字节数，一次映射不能超过 {@code Integer.MAX_VALUE} 个字节。
+     * The largest chunk; a single mapping cannot exceed
+     * {@code Integer.MAX_VALUE} bytes.
+     */
+    private static final int MAX_CHUNK = 1 << 30;
+
+    /**
+     * 查找换行符时每次从通道读取的字节数。
+     * The number of bytes read at a time while looking for a newline.
+     */
+    private static final int SCAN_SIZE = 256;
+
+    private IntColumnLoader() {}
+
+    /**
+     * 加载的结果: 按文件中的顺序排列的值，以及格式错误的行的偏移。
+     * The outcome of a load: the values in file order, and the offsets of
+     * the lines that could not be parsed.
+     */
+    public static final class Result {
+        private final int[] values;
+        private final long[] malformedOffsets;
+
+        Result(int[] values, long[] malformedOffsets) {
+            this.values = values;
+            this.malformedOffsets = malformedOffsets;
+        }
+
+        /**
+         * 返回解析出的值，顺序和文件中的行一致，格式错误的行不包括在内。
+         * Returns the parsed values in line order, malformed lines omitted.
+         *
+         * @return 解析出的值
+         *         the parsed values
+         */
+        public int[] values() {
+            return values;
+        }
+
+        /**
+         * 返回格式错误的行开始处在文件中的字节偏移，按升序排列。
+         * Returns the file byte offsets at which the malformed lines start,
+         * in ascending order.
+         *
+         * @return 格式错误的行的偏移
+         *         the offsets of the malformed lines
+         */
+        public long[] malformedOffsets() {
+            return malformedOffsets;
+        }
+    }
+
+    /**
+     * 使用 {@link ForkJoinPool#commonPool()} 加载 {@code file}。
+     * Loads {@code file} using {@link ForkJoinPool#commonPool()}.
+     *
+     * @param file 要加载的文件
+     *             the file to load
+     * @return 加载的结果
+     *         the outcome of the load
+     * @throws IOException 如果读取文件时发生 I/O 错误
+     *         if an I/O error occurs reading the file
+     */
+    public static Result load(Path file) throws IOException {
+        return load(file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 在指定的 {@code pool} 上加载 {@code file}。
+     * Loads {@code file} on the given {@code pool}.
+     *
+     * @param file 要加载的文件
+     *             the file to load
+     * @param pool 执行解析任务的线程池
+     *             the pool that runs the parsing tasks
+     * @return 加载的结果
+     *         the outcome of the load
+     * @throws IOException 如果读取文件时发生 I/O 错误
+     *         if an I/O error occurs reading the file
+     * @throws OutOfMemoryError 如果值的个数超过了数组的最大长度
+     *         if there are more values than fit in an array
+     */
+    public static Result load(Path file, ForkJoinPool pool) throws IOException {
+        Objects.requireNonNull(pool);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            Chunk[] chunks = split(ch, size, pool.getParallelism());
+            try {
+                if (chunks.length > 0)
+                    pool.invoke(new ParseTask(ch, chunks, 0, chunks.length));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return merge(chunks);
+        }
+    }
+
+    /**
+     * 把文件切成大小接近的块，每一块(除了最后一块)都在换行符之后结束。
+     * Splits the file into chunks of similar size, each but the last ending
+     * just after a newline.
+     */
+    private static Chunk[] split(FileChannel ch, long size, int parallelism)
+            throws IOException {
+        long target = size / ((long) parallelism << 2);
+        int chunkSize = (int) Math.min(Math.max(target, MIN_CHUNK), MAX_CHUNK);
+        ArrayList<Chunk> chunks = new ArrayList<>();
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+        long start = 0;
+        while (start < size) {
+            long end = start + chunkSize;
+            end = end >= size ? size : nextLineStart(ch, end, size, scan);
+            if (end - start > Integer.MAX_VALUE)
+                throw new IOException("Line longer than 2GB at offset " + start);
+            chunks.add(new Chunk(start, (int) (end - start)));
+            start = end;
+        }
+        return chunks.toArray(new Chunk[chunks.size()]);
+    }
+
+    /**
+     * 返回 {@code from} 处或之后第一个换行符的下一个位置，没有换行符时返回
+     * {@code size}。
+     * Returns the position just past the first newline at or after
+     * {@code from}, or {@code size} if there is none.
+     */
+    private static long nextLineStart(FileChannel ch, long from, long size, ByteBuffer scan)
+            throws IOException {
+        long pos = from;
+        while (pos < size) {
+            scan.clear();
+            int n = ch.read(scan, pos);
+            if (n <= 0)
+                break;
+            for (int i = 0; i < n; i++) {
+                if (scan.get(i) == '\n')
+                    return pos + i + 1;
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    private static Result merge(Chunk[] chunks) {
+        long count = 0, malformed = 0;
+        for (Chunk c : chunks) {
+            count += c.count;
+            malformed += c.malformedCount;
+        }
+        if (count > Integer.MAX_VALUE - 8 || malformed > Integer.MAX_VALUE - 8)
+            throw new OutOfMemoryError("Required array size too large");
+        int[] values = new int[(int) count];
+        long[] offsets = new long[(int) malformed];
+        int v = 0, m = 0;
+        for (Chunk c : chunks) {
+            System.arraycopy(c.values, 0, values, v, c.count);
+            v += c.count;
+            System.arraycopy(c.malformed, 0, offsets, m, c.malformedCount);
+            m += c.malformedCount;
+        }
+        return new Result(values, offsets);
+    }
+
+    /**
+     * 文件中的一块，以及解析它得到的值。
+     * One chunk of the file and the values parsed from it.
+     */
+    static final class Chunk {
+        final long start;
+        final int length;
+        int[] values;
+        int count;
+        long[] malformed = new long[0];
+        int malformedCount;
+
+        Chunk(long start, int length) {
+            this.start = start;
+            this.length = length;
+        }
+
+        void parse(ByteBuffer bytes) {
+            // 最短的合法行是一个数字加换行符
+            // the shortest well-formed line is one digit and a newline
+            values = new int[Math.max(16, length >>> 3)];
+            ByteSequence seq = new ByteSequence(bytes);
+            int lineStart = 0;
+            while (lineStart < length) {
+                int lineEnd = lineStart;
+                while (lineEnd < length && bytes.get(lineEnd) != '\n')
+                    lineEnd++;
+                int next = lineEnd + 1;
+                if (lineEnd > lineStart && bytes.get(lineEnd - 1) == '\r')
+                    lineEnd--;
+                long result = Integer.tryParseInt(seq, lineStart, lineEnd, 10);
+                if (result >= 0) {
+                    if (count == values.length)
+                        values = Arrays.copyOf(values, count + (count >> 1));
+                    values[count++] = (int) result;
+                } else {
+                    if (malformedCount == malformed.length)
+                        malformed = Arrays.copyOf(malformed, Math.max(8, malformedCount << 1));
+                    malformed[malformedCount++] = start + lineStart;
+                }
+                lineStart = next;
+            }
+        }
+    }
+
+    /**
+     * 把一段连续的块交给一个任务，数量多时一分为二。
+     * Parses a run of chunks, forking halves while there is more than one.
+     */
+    static final class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final transient FileChannel ch;
+        final transient Chunk[] chunks;
+        final int lo, hi;
+
+        ParseTask(FileChannel ch, Chunk[] chunks, int lo, int hi) {
+            this.ch = ch;
+            this.chunks = chunks;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ParseTask(ch, chunks, lo, mid),
+                          new ParseTask(ch, chunks, mid, hi));
+                return;
+            }
+            Chunk c = chunks[lo];
+            MappedByteBuffer bytes;
+            try {
+                bytes = ch.map(FileChannel.MapMode.READ_ONLY, c.start, c.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            try {
+                c.parse(bytes);
+            } finally {
+                unmap(bytes);
+            }
+        }
+    }
+
+    /**
+     * 立即释放映射，而不是等到缓冲区被垃圾回收，否则加载几 GB 的文件时地址空间
+     * 会一直被占用。
+     * Releases the mapping now rather than when the buffer is collected, so
+     * loading a multi-GB file does not hold on to its address space.
+     */
+    private static void unmap(MappedByteBuffer bytes) {
+        sun.misc.Cleaner cleaner = ((sun.nio.ch.DirectBuffer) bytes).cleaner();
+        if (cleaner != null)
+            cleaner.clean();
+    }
+
+    /**
+     * 把映射的字节当做 ISO-8859-1 字符的 {@code CharSequence} 视图，只用于
+     * 把字节交给 {@link Integer#tryParseInt(CharSequence, int, int, int)}。
+     * A {@code CharSequence} view of mapped bytes as ISO-8859-1 characters,
+     * used only to hand them to
+     * {@link Integer#tryParseInt(CharSequence, int, int, int)}.
+     */
+    static final class ByteSequence implements CharSequence {
+        private final ByteBuffer bytes;
+
+        ByteSequence(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes.get(index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || start > end || end > length())
+                throw new IndexOutOfBoundsException();
+            char[] chars = new char[end - start];
+            for (int i = 0; i < chars.length; i++)
+                chars[i] = charAt(start + i);
+            return new String(chars);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
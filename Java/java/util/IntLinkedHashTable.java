@@ -0,0 +1,444 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+/**
+ * The key table and ordering shared by {@link IntObjLinkedHashMap} and
+ * {@link IntIntLinkedHashMap}.  It is laid out like
+ * {@link CompactLinkedHashMap}: keys sit in an {@code int} array indexed by
+ * slot, the order is a doubly-linked list of slots in two {@code int}
+ * arrays, and the hash table is a linear-probing {@code int} array of
+ * slot numbers tagged with the high bits of the hash.  Because the hash of
+ * an {@code int} key is cheap to recompute, no per-slot hash is kept.
+ *
+ * <p>Subclasses own the value array.  They are told when the slot arrays
+ * grow, when a slot is freed and when the table is cleared, and they
+ * decide whether the eldest entry is removed after an insertion.
+ */
+abstract class IntLinkedHashTable {
+
+    /**
+     * The default number of slots.
+     */
+    static final int DEFAULT_SLOTS = 12;
+
+    /**
+     * The largest table length.  The map holds at most three quarters of
+     * this many entries.
+     */
+    static final int MAXIMUM_TABLE_LENGTH = 1 << 30;
+
+    /**
+     * Marks the end of a slot list.
+     */
+    static final int NIL = -1;
+
+    /**
+     * Open-addressing table, encoded as in {@link CompactLinkedHashMap}:
+     * {@code slot + 1} in the bits covered by the table mask, the hash in
+     * the bits above it, and 0 for an empty bucket.
+     */
+    int[] table;
+
+    /** Per-slot key. */
+    int[] keys;
+
+    /**
+     * Per-slot links of the iteration order.  The {@code after} links of
+     * free slots chain the free list.
+     */
+    int[] before, after;
+
+    /** The eldest and youngest slots, or {@link #NIL}. */
+    int head = NIL, tail = NIL;
+
+    /** The first free slot below {@link #used}, or {@link #NIL}. */
+    int free = NIL;
+
+    /** Slots at or above this index have never been allocated. */
+    int used;
+
+    int size;
+
+    int modCount;
+
+    /**
+     * The iteration ordering method: <tt>true</tt> for access-order,
+     * <tt>false</tt> for insertion-order.
+     */
+    final boolean accessOrder;
+
+    IntLinkedHashTable(int initialCapacity, boolean accessOrder) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        this.accessOrder = accessOrder;
+        int slots = Math.min(Math.max(initialCapacity, DEFAULT_SLOTS),
+                             slotsFor(MAXIMUM_TABLE_LENGTH));
+        int n = 16;
+        while (slotsFor(n) < slots)
+            n <<= 1;
+        table = new int[n];
+        keys = new int[slots];
+        before = new int[slots];
+        after = new int[slots];
+    }
+
+    /**
+     * Returns the number of slots a table of length {@code n} can index.
+     */
+    static int slotsFor(int n) {
+        return n - (n >>> 2);
+    }
+
+    /**
+     * Resizes the value array to {@code slots} slots.
+     */
+    abstract void resizeValues(int slots);
+
+    /**
+     * Drops any reference held by the value of a freed slot.
+     */
+    abstract void clearValue(int slot);
+
+    /**
+     * Drops any reference held by the values of slots below {@code used}.
+     */
+    abstract void clearValues(int used);
+
+    /**
+     * Asks the subclass hook whether the mapping in slot {@code eldest}
+     * should be removed after an insertion.
+     */
+    abstract boolean removeEldest(int eldest);
+
+    // Table
+
+    /**
+     * Returns the table index holding {@code key}, or the complement of
+     * the empty bucket where it would be inserted.
+     */
+    final int find(int key) {
+        int[] tab = table;
+        int hash = Integer.mix(key), mask = tab.length - 1, tag = hash & ~mask;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int t = tab[i];
+            if (t == 0)
+                return ~i;
+            if ((t & ~mask) == tag && keys[(t & mask) - 1] == key)
+                return i;
+        }
+    }
+
+    /**
+     * Returns the slot held in the used bucket {@code i}.
+     */
+    final int slotAt(int i) {
+        int[] tab = table;
+        return (tab[i] & (tab.length - 1)) - 1;
+    }
+
+    /**
+     * Returns the slot holding {@code key}, or {@link #NIL}.
+     */
+    final int slotOf(int key) {
+        int i = find(key);
+        return (i < 0) ? NIL : slotAt(i);
+    }
+
+    /**
+     * Empties bucket {@code i}, shifting back the entries after it whose
+     * probe sequence passes through it.
+     */
+    private void deleteBucket(int i) {
+        int[] tab = table, ks = keys;
+        int mask = tab.length - 1;
+        for (int j = i; ; ) {
+            j = (j + 1) & mask;
+            int t = tab[j];
+            if (t == 0)
+                break;
+            int home = Integer.mix(ks[(t & mask) - 1]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                tab[i] = t;
+                i = j;
+            }
+        }
+        tab[i] = 0;
+    }
+
+    /**
+     * Grows the slot arrays by half, first doubling the table if it cannot
+     * index more slots.  Slot numbers are unchanged.
+     */
+    private void grow() {
+        int n = table.length, max = slotsFor(n), slots = keys.length;
+        if (slots >= max) {
+            if (n >= MAXIMUM_TABLE_LENGTH)
+                throw new OutOfMemoryError("Required map size too large");
+            rehash(n << 1);
+            max = slotsFor(n << 1);
+        }
+        int newSlots = (int) Math.min((long) max, slots + (slots >> 1) + 1L);
+        keys = Arrays.copyOf(keys, newSlots);
+        before = Arrays.copyOf(before, newSlots);
+        after = Arrays.copyOf(after, newSlots);
+        resizeValues(newSlots);
+    }
+
+    private void rehash(int newLength) {
+        int[] tab = new int[newLength], ks = keys, as = after;
+        int mask = newLength - 1;
+        for (int s = head; s != NIL; s = as[s]) {
+            int h = Integer.mix(ks[s]), i = h & mask;
+            while (tab[i] != 0)
+                i = (i + 1) & mask;
+            tab[i] = (h & ~mask) | (s + 1);
+        }
+        table = tab;
+    }
+
+    // Slots and links
+
+    private void linkLast(int s) {
+        int last = tail;
+        before[s] = last;
+        after[s] = NIL;
+        if (last == NIL)
+            head = s;
+        else
+            after[last] = s;
+        tail = s;
+    }
+
+    private void unlink(int s) {
+        int b = before[s], a = after[s];
+        if (b == NIL)
+            head = a;
+        else
+            after[b] = a;
+        if (a == NIL)
+            tail = b;
+        else
+            before[a] = b;
+    }
+
+    /**
+     * Moves slot {@code s} to the end of the order if this map is
+     * access-ordered.
+     */
+    final void afterAccess(int s) {
+        if (accessOrder && tail != s) {
+            unlink(s);
+            linkLast(s);
+            ++modCount;
+        }
+    }
+
+    /**
+     * Claims a slot for {@code key}, whose absence left {@code ~i} from
+     * {@link #find}, and returns it.  The caller stores the value and then
+     * calls {@link #afterInsert()}.
+     */
+    final int insert(int i, int key) {
+        int s;
+        if ((s = free) != NIL)
+            free = after[s];
+        else {
+            if (used == keys.length) {
+                grow();
+                i = find(key);
+            }
+            s = used++;
+        }
+        keys[s] = key;
+        int mask = table.length - 1;
+        table[~i] = (Integer.mix(key) & ~mask) | (s + 1);
+        linkLast(s);
+        ++size;
+        ++modCount;
+        return s;
+    }
+
+    /**
+     * Removes the mapping in bucket {@code i} and returns its slot, which
+     * the caller must not read after its next insertion.
+     */
+    final int removeBucket(int i) {
+        int s = slotAt(i);
+        deleteBucket(i);
+        unlink(s);
+        clearValue(s);
+        after[s] = free;
+        free = s;
+        --size;
+        ++modCount;
+        return s;
+    }
+
+    final void afterInsert() {
+        int first;
+        if ((first = head) != NIL && removeEldest(first))
+            removeBucket(find(keys[first]));
+    }
+
+    // Shared operations
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     *
+     * @return <tt>true</tt> if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the
+     * specified key.  This does not count as an access.
+     *
+     * @param  key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the key
+     */
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Returns the key of the eldest mapping: the least recently inserted
+     * one, or in an access-ordered map the least recently accessed one.
+     * This does not count as an access.
+     *
+     * @return the key of the eldest mapping
+     * @throws NoSuchElementException if this map is empty
+     */
+    public int eldestKey() {
+        int first;
+        if ((first = head) == NIL)
+            throw new NoSuchElementException();
+        return keys[first];
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        if (size > 0 || used > 0) {
+            Arrays.fill(table, 0);
+            clearValues(used);
+            head = tail = free = NIL;
+            used = 0;
+            size = 0;
+            ++modCount;
+        }
+    }
+
+    /**
+     * Returns the keys of this map in iteration order.  This does not
+     * count as an access.
+     *
+     * @return a new array holding the keys of this map
+     */
+    public int[] keys() {
+        int[] result = new int[size], ks = keys, as = after;
+        int j = 0;
+        for (int s = head; s != NIL; s = as[s])
+            result[j++] = ks[s];
+        return result;
+    }
+
+    /**
+     * The cursor state shared by the subclasses' cursors.
+     */
+    abstract class SlotCursor {
+        int next = head;
+        int current = NIL;
+        int expectedModCount = modCount;
+
+        /**
+         * Moves to the next mapping.
+         *
+         * @return <tt>true</tt> if there was a next mapping, <tt>false</tt>
+         *         if the cursor has passed the last one
+         * @throws ConcurrentModificationException if the map was modified
+         *         other than through this cursor
+         */
+        public final boolean advance() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int s = next;
+            if (s == NIL) {
+                current = NIL;
+                return false;
+            }
+            current = s;
+            next = after[s];
+            return true;
+        }
+
+        final int slot() {
+            int s = current;
+            if (s == NIL)
+                throw new IllegalStateException();
+            return s;
+        }
+
+        /**
+         * Returns the key of the current mapping.
+         *
+         * @return the key of the current mapping
+         * @throws IllegalStateException if the cursor is not on a mapping
+         */
+        public final int key() {
+            return keys[slot()];
+        }
+
+        /**
+         * Removes the current mapping.  The cursor is left between
+         * mappings; {@link #advance()} moves it to the next one.
+         *
+         * @throws IllegalStateException if the cursor is not on a mapping
+         * @throws ConcurrentModificationException if the map was modified
+         *         other than through this cursor
+         */
+        public final void remove() {
+            int s = slot();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = NIL;
+            removeBucket(find(keys[s]));
+            expectedModCount = modCount;
+        }
+    }
+}
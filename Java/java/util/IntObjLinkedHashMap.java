@@ -0,0 +1,328 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+/**
+ * An ordered map from {@code int} keys to object values that never boxes
+ * its keys.  It keeps the ordering of {@link LinkedHashMap}, by insertion
+ * or, if created with <tt>accessOrder</tt> set, by access, and offers the
+ * same eviction hook as {@link #removeEldestEntry(int, Object)}.
+ *
+ * <p>This class does not implement {@link Map}, whose methods take and
+ * return boxed keys.  Mappings are traversed with a {@link Cursor}, which
+ * allocates nothing per mapping:
+ * <pre>
+ *     IntObjLinkedHashMap&lt;Session&gt;.Cursor c = sessions.cursor();
+ *     while (c.advance()) {
+ *         if (c.value().isExpired())
+ *             c.remove();
+ *     }
+ * </pre>
+ *
+ * <p>Null values are permitted, so a {@code null} result from {@link #get}
+ * may also mean that the key maps to {@code null}; use
+ * {@link #containsKey} to tell the two apart.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * Cursors are fail-fast in the same way as the iterators of
+ * {@code LinkedHashMap}; in an access-ordered map, querying with
+ * {@code get} is a structural modification.
+ *
+ * @param <V> the type of mapped values
+ *
+ * @see LinkedHashMap
+ * @see IntIntLinkedHashMap
+ */
+public class IntObjLinkedHashMap<V> extends IntLinkedHashTable {
+
+    /** Per-slot value. */
+    Object[] values;
+
+    /**
+     * Constructs an empty insertion-ordered map with the default initial
+     * capacity.
+     */
+    public IntObjLinkedHashMap() {
+        this(0, false);
+    }
+
+    /**
+     * Constructs an empty insertion-ordered map with room for the
+     * specified number of mappings.
+     *
+     * @param  initialCapacity the number of mappings to hold before resizing
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public IntObjLinkedHashMap(int initialCapacity) {
+        this(initialCapacity, false);
+    }
+
+    /**
+     * Constructs an empty map with room for the specified number of
+     * mappings and the specified ordering mode.
+     *
+     * @param  initialCapacity the number of mappings to hold before resizing
+     * @param  accessOrder     the ordering mode - <tt>true</tt> for
+     *         access-order, <tt>false</tt> for insertion-order
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public IntObjLinkedHashMap(int initialCapacity, boolean accessOrder) {
+        super(initialCapacity, accessOrder);
+        values = new Object[keys.length];
+    }
+
+    void resizeValues(int slots) {
+        values = Arrays.copyOf(values, slots);
+    }
+
+    void clearValue(int slot) {
+        values[slot] = null;
+    }
+
+    void clearValues(int used) {
+        Arrays.fill(values, 0, used, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    boolean removeEldest(int eldest) {
+        return removeEldestEntry(keys[eldest], (V) values[eldest]);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.  In an
+     * access-ordered map a successful lookup moves the mapping to the end
+     * of the order.
+     *
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the key is mapped, or {@code null}
+     */
+    public V get(int key) {
+        return getOrDefault(key, null);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param  key the key whose associated value is to be returned
+     * @param  defaultValue the value to return if the key is absent
+     * @return the value to which the key is mapped, or
+     *         {@code defaultValue}
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(int key, V defaultValue) {
+        int s;
+        if ((s = slotOf(key)) == NIL)
+            return defaultValue;
+        afterAccess(s);
+        return (V) values[s];
+    }
+
+    /**
+     * Associates the specified value with the specified key.  A new
+     * mapping goes to the end of the order; in an access-ordered map so
+     * does a replaced one.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  value value to be associated with the specified key
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        int i = find(key);
+        if (i >= 0) {
+            int s = slotAt(i);
+            V old = (V) values[s];
+            values[s] = value;
+            afterAccess(s);
+            return old;
+        }
+        int s = insert(i, key);
+        values[s] = value;
+        afterInsert();
+        return null;
+    }
+
+    /**
+     * Associates the specified value with the specified key if the key is
+     * absent or mapped to {@code null}.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  value value to be associated with the specified key
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(int key, V value) {
+        int i = find(key);
+        if (i >= 0) {
+            int s = slotAt(i);
+            V old = (V) values[s];
+            if (old == null)
+                values[s] = value;
+            afterAccess(s);
+            return old;
+        }
+        int s = insert(i, key);
+        values[s] = value;
+        afterInsert();
+        return null;
+    }
+
+    /**
+     * Removes the mapping for the specified key if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int i = find(key);
+        if (i < 0)
+            return null;
+        V old = (V) values[slotAt(i)];
+        removeBucket(i);
+        return old;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param  value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(Object value) {
+        Object[] vs = values;
+        int[] as = after;
+        for (int s = head; s != NIL; s = as[s]) {
+            Object v = vs[s];
+            if (v == value || (value != null && value.equals(v)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value of the eldest mapping.  This does not count as an
+     * access.
+     *
+     * @return the value of the eldest mapping
+     * @throws NoSuchElementException if this map is empty
+     * @see #eldestKey()
+     */
+    @SuppressWarnings("unchecked")
+    public V eldestValue() {
+        int first;
+        if ((first = head) == NIL)
+            throw new NoSuchElementException();
+        return (V) values[first];
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map should remove its eldest mapping.
+     * This method is invoked by <tt>put</tt> and <tt>putIfAbsent</tt> after
+     * inserting a new mapping, exactly as
+     * {@link LinkedHashMap#removeEldestEntry(Map.Entry)} is, but is handed
+     * the eldest key and value directly so that nothing is boxed.
+     *
+     * @param    key the key of the least recently inserted mapping, or if
+     *           this is an access-ordered map, the least recently accessed
+     * @param    value the value of that mapping
+     * @return   <tt>true</tt> if the eldest mapping should be removed
+     *           from the map; <tt>false</tt> if it should be retained.
+     */
+    protected boolean removeEldestEntry(int key, V value) {
+        return false;
+    }
+
+    /**
+     * Returns a cursor over the mappings of this map in iteration order,
+     * positioned before the first mapping.  Moving the cursor does not
+     * count as an access.
+     *
+     * @return a cursor over the mappings of this map
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A cursor over the mappings of the map, in iteration order.
+     */
+    public final class Cursor extends SlotCursor {
+        Cursor() {}
+
+        /**
+         * Returns the value of the current mapping.
+         *
+         * @return the value of the current mapping
+         * @throws IllegalStateException if the cursor is not on a mapping
+         */
+        @SuppressWarnings("unchecked")
+        public V value() {
+            return (V) values[slot()];
+        }
+
+        /**
+         * Replaces the value of the current mapping.  This is not a
+         * structural modification.
+         *
+         * @param  value the new value
+         * @return the old value
+         * @throws IllegalStateException if the cursor is not on a mapping
+         */
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            int s = slot();
+            V old = (V) values[s];
+            values[s] = value;
+            return old;
+        }
+    }
+
+    /**
+     * Returns a string representation of this map, in the same form as
+     * {@link AbstractMap#toString()}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        if (head == NIL)
+            return "{}";
+        StringBuilder sb = new StringBuilder().append('{');
+        for (int s = head; ; ) {
+            Object v = values[s];
+            sb.append(keys[s]).append('=').append(v == this ? "(this Map)" : v);
+            if ((s = after[s]) == NIL)
+                return sb.append('}').toString();
+            sb.append(',').append(' ');
+        }
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * {@code int[]} 的基数排序，每次处理一个字节。有符号的顺序和
+ * {@link Integer#compare(int, int)} 一致，无符号的顺序和
+ * {@link Integer#compareUnsigned(int, int)} 一致: 有符号排序时把最高字节和
+ * {@code 0x80} 异或，这样两种顺序都变成按字节的无符号比较。
+ * Radix sorts for {@code int[]}, one byte per pass. The signed order is the
+ * one of {@link Integer#compare(int, int)} and the unsigned order the one of
+ * {@link Integer#compareUnsigned(int, int)}: for the signed order the top
+ * byte is xor-ed with {@code 0x80}, which turns both into a plain unsigned
+ * byte-wise comparison.
+ *
+ * <p>顺序版本从最低字节开始(LSD)，先用一遍扫描算出全部四个字节的直方图，
+ * 所有值都落在同一个桶里的字节直接跳过，所以取值集中的数据(时间戳、连续的
+ * ID)只需要很少的几遍。并行版本先并行地计算直方图，按最高的不相同的字节
+ * (MSD)把数据分到 256 个桶中，然后在 {@link ForkJoinPool#commonPool()} 上
+ * 分别对每个桶做 LSD 排序。
+ * <p>The sequential sorts are least-significant-digit first. One scan
+ * builds the histograms of all four bytes, and a byte on which every key
+ * falls into the same bucket is skipped, so clustered keys such as
+ * timestamps or dense IDs need only a few passes. The parallel sorts build
+ * the histograms in parallel, partition the keys into 256 buckets on the
+ * most significant byte that differs, and then LSD-sort each bucket on the
+ * {@link ForkJoinPool#commonPool()}.
+ *
+ * <p>排序需要和输入一样大的临时数组。
+ * <p>The sorts use a scratch array as large as the range being sorted.
+ *
+ * @see Arrays#sort(int[])
+ * @see Arrays#parallelSort(int[])
+ */
+public final class IntRadixSort {
+
+    private static final int DIGITS = 4;
+    private static final int BUCKETS = 256;
+
+    /**
+     * 小于这个长度时使用插入排序。
+     * Below this length insertion sort is used instead.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 64;
+
+    /**
+     * 小于这个长度时并行排序退化为顺序排序。
+     * Below this length the parallel sorts fall back to the sequential
+     * ones.
+     */
+    private static final int MIN_PARALLEL_SORT = 1 << 16;
+
+    /**
+     * 并行排序中每一块的最小长度。
+     * The smallest chunk a parallel histogram or scatter task handles.
+     */
+    private static final int MIN_CHUNK = 1 << 13;
+
+    /** 有符号顺序的异或掩码 The xor mask for the signed order. */
+    private static final int SIGNED = Integer.MIN_VALUE;
+
+    /** 无符号顺序的异或掩码 The xor mask for the unsigned order. */
+    private static final int UNSIGNED = 0;
+
+    private IntRadixSort() {}
+
+    /**
+     * 按有符号的顺序对数组排序。
+     * Sorts the array into signed ascending order.
+     *
+     * @param a 要排序的数组
+     *          the array to be sorted
+     */
+    public static void sort(int[] a) {
+        sort0(a, 0, a.length, SIGNED);
+    }
+
+    /**
+     * 按有符号的顺序对数组的 {@code [fromIndex, toIndex)} 范围排序。
+     * Sorts the range {@code [fromIndex, toIndex)} into signed ascending
+     * order.
+     *
+     * @param a         要排序的数组
+     *                  the array to be sorted
+     * @param fromIndex 开始的下标(包含)
+     *                  the index of the first element, inclusive
+     * @param toIndex   结束的下标(不包含)
+     *                  the index of the last element, exclusive
+     * @throws IllegalArgumentException 如果 {@code fromIndex > toIndex}
+     *         if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException 如果 {@code fromIndex < 0} 或者
+     *         {@code toIndex > a.length}
+     *         if {@code fromIndex < 0} or {@code toIndex > a.length}
+     */
+    public static void sort(int[] a, int fromIndex, int toIndex) {
+        Arrays.rangeCheck(a.length, fromIndex, toIndex);
+        sort0(a, fromIndex, toIndex, SIGNED);
+    }
+
+    /**
+     * 按无符号的顺序对数组排序。
+     * Sorts the array into unsigned ascending order.
+     *
+     * @param a 要排序的数组
+     *          the array to be sorted
+     */
+    public static void sortUnsigned(int[] a) {
+        sort0(a, 0, a.length, UNSIGNED);
+    }
+
+    /**
+     * 按无符号的顺序对数组的 {@code [fromIndex, toIndex)} 范围排序。
+     * Sorts the range {@code [fromIndex, toIndex)} into unsigned ascending
+     * order.
+     *
+     * @param a         要排序的数组
+     *                  the array to be sorted
+     * @param fromIndex 开始的下标(包含)
+     *                  the index of the first element, inclusive
+     * @param toIndex   结束的下标(不包含)
+     *                  the index of the last element, exclusive
+     * @throws IllegalArgumentException 如果 {@code fromIndex > toIndex}
+     *         if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException 如果 {@code fromIndex < 0} 或者
+     *         {@code toIndex > a.length}
+     *         if {@code fromIndex < 0} or {@code toIndex > a.length}
+     */
+    public static void sortUnsigned(int[] a, int fromIndex, int toIndex) {
+        Arrays.rangeCheck(a.length, fromIndex, toIndex);
+        sort0(a, fromIndex, toIndex, UNSIGNED);
+    }
+
+    /**
+     * 按有符号的顺序并行地对数组排序。
+     * Sorts the array into signed ascending order in parallel.
+     *
+     * @param a 要排序的数组
+     *          the array to be sorted
+     */
+    public static void parallelSort(int[] a) {
+        parallelSort0(a, 0, a.length, SIGNED);
+    }
+
+    /**
+     * 按有符号的顺序并行地对数组的 {@code [fromIndex, toIndex)} 范围排序。
+     * Sorts the range {@code [fromIndex, toIndex)} into signed ascending
+     * order in parallel.
+     *
+     * @param a         要排序的数组
+     *                  the array to be sorted
+     * @param fromIndex 开始的下标(包含)
+     *                  the index of the first element, inclusive
+     * @param toIndex   结束的下标(不包含)
+     *                  the index of the last element, exclusive
+     * @throws IllegalArgumentException 如果 {@code fromIndex > toIndex}
+     *         if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException 如果 {@code fromIndex < 0} 或者
+     *         {@code toIndex > a.length}
+     *         if {@code fromIndex < 0} or {@code toIndex > a.length}
+     */
+    public static void parallelSort(int[] a, int fromIndex, int toIndex) {
+        Arrays.rangeCheck(a.length, fromIndex, toIndex);
+        parallelSort0(a, fromIndex, toIndex, SIGNED);
+    }
+
+    /**
+     * 按无符号的顺序并行地对数组排序。
+     * Sorts the array into unsigned ascending order in parallel.
+     *
+     * @param a 要排序的数组
+     *          the array to be sorted
+     */
+    public static void parallelSortUnsigned(int[] a) {
+        parallelSort0(a, 0, a.length, UNSIGNED);
+    }
+
+    /**
+     * 按无符号的顺序并行地对数组的 {@code [fromIndex, toIndex)} 范围排序。
+     * Sorts the range {@code [fromIndex, toIndex)} into unsigned ascending
+     * order in parallel.
+     *
+     * @param a         要排序的数组
+     *                  the array to be sorted
+     * @param fromIndex 开始的下标(包含)
+     *                  the index of the first element, inclusive
+     * @param toIndex   结束的下标(不包含)
+     *                  the index of the last element, exclusive
+     * @throws IllegalArgumentException 如果 {@code fromIndex > toIndex}
+     *         if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException 如果 {@code fromIndex < 0} 或者
+     *         {@code toIndex > a.length}
+     *         if {@code fromIndex < 0} or {@code toIndex > a.length}
+     */
+    public static void parallelSortUnsigned(int[] a, int fromIndex, int toIndex) {
+        Arrays.rangeCheck(a.length, fromIndex, toIndex);
+        parallelSort0(a, fromIndex, toIndex, UNSIGNED);
+    }
+
+    private static void sort0(int[] a, int from, int to, int flip) {
+        int n = to - from;
+        if (n < INSERTION_SORT_THRESHOLD) {
+            insertionSort(a, from, to, flip);
+            return;
+        }
+        int[][] count = new int[DIGITS][BUCKETS];
+        histogram(a, from, to, flip, count);
+        int[] buf = new int[n];
+        if (lsd(a, from, buf, 0, n, flip, count, DIGITS))
+            System.arraycopy(buf, 0, a, from, n);
+    }
+
+    /**
+     * 插入排序，比较的是 {@code v ^ flip} 的无符号值。
+     * Insertion sort comparing {@code v ^ flip} as unsigned.
+     */
+    private static void insertionSort(int[] a, int from, int to, int flip) {
+        // 和 MIN_VALUE 异或之后无符号比较就变成了有符号比较
+        // xor with MIN_VALUE turns the unsigned comparison into a signed one
+        int bias = flip ^ Integer.MIN_VALUE;
+        for (int i = from + 1; i < to; i++) {
+            int v = a[i];
+            int key = v ^ bias;
+            int j = i - 1;
+            while (j >= from && (a[j] ^ bias) > key) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = v;
+        }
+    }
+
+    /**
+     * 一遍扫描累加 {@code [from, to)} 中全部四个字节的直方图。
+     * Adds the histograms of all four bytes of {@code [from, to)} to
+     * {@code count} in one scan.
+     */
+    private static void histogram(int[] a, int from, int to, int flip, int[][] count) {
+        int[] c0 = count[0], c1 = count[1], c2 = count[2], c3 = count[3];
+        for (int i = from; i < to; i++) {
+            int v = a[i] ^ flip;
+            c0[v & 0xff]++;
+            c1[(v >>> 8) & 0xff]++;
+            c2[(v >>> 16) & 0xff]++;
+            c3[v >>> 24]++;
+        }
+    }
+
+    /**
+     * 对 {@code x} 中从 {@code xFrom} 开始的 {@code n} 个值按最低的
+     * {@code digits} 个字节做 LSD 排序，{@code y} 中从 {@code yFrom} 开始的
+     * 位置用作临时空间。所有值都相同的字节被跳过。如果结果最后在 {@code y}
+     * 中返回 {@code true}，否则结果在 {@code x} 中。
+     * LSD-sorts the {@code n} keys of {@code x} at {@code xFrom} on their
+     * low {@code digits} bytes, using {@code y} at {@code yFrom} as scratch
+     * space and skipping bytes shared by every key. Returns {@code true} if
+     * the result ended up in {@code y}, {@code false} if it is in {@code x}.
+     */
+    private static boolean lsd(int[] x, int xFrom, int[] y, int yFrom, int n,
+                               int flip, int[][] count, int digits) {
+        int[] src = x, dst = y;
+        int srcFrom = xFrom, dstFrom = yFrom;
+        int[] pos = new int[BUCKETS];
+        for (int d = 0; d < digits; d++) {
+            int shift = d << 3;
+            int[] c = count[d];
+            if (c[((src[srcFrom] ^ flip) >>> shift) & 0xff] == n)
+                continue;
+            for (int b = 0, sum = dstFrom; b < BUCKETS; b++) {
+                pos[b] = sum;
+                sum += c[b];
+            }
+            for (int i = srcFrom, end = srcFrom + n; i < end; i++) {
+                int v = src[i];
+                dst[pos[((v ^ flip) >>> shift) & 0xff]++] = v;
+            }
+            int[] t = src; src = dst; dst = t;
+            int f = srcFrom; srcFrom = dstFrom; dstFrom = f;
+        }
+        return src == y;
+    }
+
+    private static void parallelSort0(int[] a, int from, int to, int flip) {
+        int n = to - from;
+        int p = ForkJoinPool.getCommonPoolParallelism();
+        if (n < MIN_PARALLEL_SORT || p == 1)
+            sort0(a, from, to, flip);
+        else
+            new Sorter(a, from, to, flip, p).sort();
+    }
+
+    /**
+     * 一次并行排序的状态。分成三个阶段: 每一块计算直方图，每一块按最高的
+     * 不相同的字节把值分散到临时数组的各个桶中，每个桶各自做 LSD 排序后写回。
+     * The state of one parallel sort. It runs in three phases: each chunk
+     * builds its histograms, each chunk scatters its keys into the buckets
+     * of the scratch array on the most significant byte that differs, and
+     * each bucket is LSD-sorted and written back.
+     */
+    static final class Sorter {
+        static final int HISTOGRAM = 0, SCATTER = 1, BUCKET = 2;
+
+        final int[] a;
+        final int from, to, flip;
+        final int chunkSize, chunks;
+        final int[][][] counts;
+        final int[] buf;
+        /** 分桶使用的字节 The byte the keys are partitioned on. */
+        int digit;
+        /** 每一块在每个桶中的写入位置 Per-chunk write positions per bucket. */
+        int[][] positions;
+        /** 每个桶在 {@code buf} 中的起始位置 Bucket starts within {@code buf}. */
+        final int[] bucketStart = new int[BUCKETS + 1];
+
+        Sorter(int[] a, int from, int to, int flip, int parallelism) {
+            this.a = a;
+            this.from = from;
+            this.to = to;
+            this.flip = flip;
+            int n = to - from;
+            int chunks = Math.min(parallelism << 2, n / MIN_CHUNK);
+            this.chunkSize = (n + chunks - 1) / chunks;
+            this.chunks = (n + chunkSize - 1) / chunkSize;
+            this.counts = new int[this.chunks][DIGITS][BUCKETS];
+            this.buf = new int[n];
+        }
+
+        void sort() {
+            ForkJoinPool.commonPool().invoke(new Phase(this, HISTOGRAM, 0, chunks));
+            int n = to - from;
+            int[][] total = new int[DIGITS][BUCKETS];
+            for (int[][] c : counts)
+                for (int d = 0; d < DIGITS; d++)
+                    for (int b = 0; b < BUCKETS; b++)
+                        total[d][b] += c[d][b];
+            int d = DIGITS - 1;
+            int first = (a[from] ^ flip);
+            while (d >= 0 && total[d][(first >>> (d << 3)) & 0xff] == n)
+                d--;
+            if (d < 0)
+                return; // 所有值都相同 every key is equal
+            digit = d;
+            positions = new int[chunks][BUCKETS];
+            for (int b = 0, sum = 0; b < BUCKETS; b++) {
+                bucketStart[b] = sum;
+                for (int k = 0; k < chunks; k++) {
+                    positions[k][b] = sum;
+                    sum += counts[k][d][b];
+                }
+            }
+            bucketStart[BUCKETS] = n;
+            ForkJoinPool.commonPool().invoke(new Phase(this, SCATTER, 0, chunks));
+            ForkJoinPool.commonPool().invoke(new Phase(this, BUCKET, 0, BUCKETS));
+        }
+
+        void histogram(int k) {
+            int lo = from + k * chunkSize;
+            IntRadixSort.histogram(a, lo, Math.min(lo + chunkSize, to), flip, counts[k]);
+        }
+
+        void scatter(int k) {
+            int lo = from + k * chunkSize;
+            int hi = Math.min(lo + chunkSize, to);
+            int[] pos = positions[k];
+            int shift = digit << 3;
+            for (int i = lo; i < hi; i++) {
+                int v = a[i];
+                buf[pos[((v ^ flip) >>> shift) & 0xff]++] = v;
+            }
+        }
+
+        void sortBucket(int b) {
+            int lo = bucketStart[b], hi = bucketStart[b + 1];
+            int n = hi - lo;
+            if (n == 0)
+                return;
+            if (n < INSERTION_SORT_THRESHOLD) {
+                insertionSort(buf, lo, hi, flip);
+            } else if (digit > 0) {
+                int[][] count = new int[DIGITS][BUCKETS];
+                IntRadixSort.histogram(buf, lo, hi, flip, count);
+                if (lsd(buf, lo, a, from + lo, n, flip, count, digit))
+                    return;
+            }
+            System.arraycopy(buf, lo, a, from + lo, n);
+        }
+    }
+
+    /**
+     * 把 {@code [lo, hi)} 中的块或桶一分为二地分配给工作线程。
+     * Runs one phase of a {@link Sorter} over the chunks or buckets in
+     * {@code [lo, hi)}, forking halves while there is more than one.
+     */
+    static final class Phase extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final transient Sorter sorter;
+        final int phase, lo, hi;
+
+        Phase(Sorter sorter, int phase, int lo, int hi) {
+            this.sorter = sorter;
+            this.phase = phase;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Phase(sorter, phase, lo, mid),
+                          new Phase(sorter, phase, mid, hi));
+            } else if (phase == Sorter.HISTOGRAM) {
+                sorter.histogram(lo);
+            } else if (phase == Sorter.SCATTER) {
+                sorter.scatter(lo);
+            } else {
+                sorter.sortBucket(lo);
+            }
+        }
+    }
+}
@@ -0,0 +1,441 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 从字符流中逐个读取整数的分词器，用法和 {@link java.io.StreamTokenizer} 类似。
+ * 输入被分隔符切成记号，每个记号在内部复用的缓冲区中直接用
+ * {@link Integer#tryParseInt(CharSequence, int, int, int)} 解析，规则(符号、
+ * 溢出)和 {@link Integer#parseInt(String, int)} 完全相同，但是既不会为每个记号
+ * 创建 {@code String}，格式错误时也不会抛出异常，而是返回
+ * {@link #TT_MALFORMED} 并记录出错的位置。
+ * A tokenizer that reads integers one at a time from a character stream,
+ * in the manner of {@link java.io.StreamTokenizer}. The input is split
+ * into tokens at delimiter characters and each token is parsed in place in
+ * an internal, reused buffer by
+ * {@link Integer#tryParseInt(CharSequence, int, int, int)}, with exactly
+ * the sign and overflow rules of {@link Integer#parseInt(String, int)}.
+ * No {@code String} is created per token, and a malformed token yields
+ * {@link #TT_MALFORMED} with its position instead of an exception.
+ *
+ * <p>默认的分隔符是 {@code '\u0000'} 到 {@code ' '} 之间的所有字符以及
+ * {@code ','}，可以用 {@link #delimiterChars(int, int)} 和
+ * {@link #ordinaryChars(int, int)} 修改。只有小于 256 的字符可以作为分隔符。
+ * <p>By default the delimiters are every character from
+ * {@code '\u0000'} through {@code ' '}, and {@code ','}; they can be
+ * changed with {@link #delimiterChars(int, int)} and
+ * {@link #ordinaryChars(int, int)}. Only characters below 256 can be
+ * delimiters.
+ *
+ * <p>位置是从输入开头算起的字符偏移。超过 {@link #MAX_TOKEN_LENGTH} 个字符的
+ * 记号不会被缓存，直接作为 {@link #TT_MALFORMED} 返回，所以恶意的输入不会让
+ * 缓冲区无限增长。
+ * <p>Positions are character offsets from the start of the input. A token
+ * longer than {@link #MAX_TOKEN_LENGTH} characters is not buffered but
+ * reported as {@link #TT_MALFORMED}, so hostile input cannot grow the
+ * buffer without bound.
+ *
+ * <p>这个类不是线程安全的。
+ * <p>This class is not thread-safe.
+ *
+ * @see Integer#tryParseInt(CharSequence, int, int, int)
+ * @see java.io.StreamTokenizer
+ */
+public class IntTokenizer implements Closeable {
+
+    /**
+     * 表示已经读到输入末尾的常量。
+     * A constant indicating that the end of the input has been read.
+     */
+    public static final int TT_EOF = -1;
+
+    /**
+     * 表示读到了一个整数的常量，值可以用 {@link #intValue()} 取得。
+     * A constant indicating that an integer has been read; its value is
+     * available from {@link #intValue()}.
+     */
+    public static final int TT_INT = -2;
+
+    /**
+     * 表示读到了一个不能解析的记号的常量。
+     * A constant indicating that a token which could not be parsed has been
+     * read.
+     */
+    public static final int TT_MALFORMED = -3;
+
+    /**
+     * 会被缓存的记号的最大长度。
+     * The longest token that is buffered.
+     */
+    public static final int MAX_TOKEN_LENGTH = 1 << 16;
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private final Reader in;
+    private final int radix;
+    private final boolean[] delimiter = new boolean[256];
+
+    private char[] buf = new char[INITIAL_BUFFER_SIZE];
+    /** {@code buf} 的 {@code CharSequence} 视图 A view of {@code buf}. */
+    private CharBuffer view = CharBuffer.wrap(buf);
+    /** 下一个要读取的字符 The next character to examine. */
+    private int pos;
+    /** {@code buf} 中有效字符的末尾 The end of the valid characters. */
+    private int limit;
+    /** {@code buf[0]} 在输入中的位置 The input offset of {@code buf[0]}. */
+    private long base;
+    private boolean eof;
+
+    private int ttype = TT_EOF - 1;
+    private int value;
+    private long tokenPosition = -1;
+    private long errorPosition = -1;
+    /** 最后一个记号在 {@code buf} 中的范围 The last token within {@code buf}. */
+    private int tokenStart, tokenEnd;
+    private boolean overlong;
+
+    /**
+     * 创建一个从 {@code in} 读取十进制整数的分词器。
+     * Creates a tokenizer reading decimal integers from {@code in}.
+     *
+     * @param in 字符输入流
+     *           the character stream
+     */
+    public IntTokenizer(Reader in) {
+        this(in, 10);
+    }
+
+    /**
+     * 创建一个从 {@code in} 读取指定基数的整数的分词器。
+     * Creates a tokenizer reading integers in the given radix from
+     * {@code in}.
+     *
+     * @param in    字符输入流
+     *              the character stream
+     * @param radix 解析时使用的基数
+     *              the radix used to parse tokens
+     * @throws IllegalArgumentException 如果基数不在
+     *         {@link Character#MIN_RADIX} 和 {@link Character#MAX_RADIX} 之间
+     *         if the radix is outside
+     *         {@link Character#MIN_RADIX} through {@link Character#MAX_RADIX}
+     */
+    public IntTokenizer(Reader in, int radix) {
+        if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX)
+            throw new IllegalArgumentException("radix " + radix + " out of range");
+        this.in = Objects.requireNonNull(in);
+        this.radix = radix;
+        delimiterChars(0, ' ');
+        delimiterChars(',', ',');
+    }
+
+    /**
+     * 创建一个从字节流读取十进制整数的分词器。每个字节按 ISO-8859-1 解码成一个
+     * 字符，所以任何字节序列都不会导致解码错误。
+     * Creates a tokenizer reading decimal integers from a byte stream. Each
+     * byte is decoded as one ISO-8859-1 character, so no byte sequence can
+     * fail to decode.
+     *
+     * @param in 字节输入流
+     *           the byte stream
+     */
+    public IntTokenizer(InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.ISO_8859_1), 10);
+    }
+
+    /**
+     * 创建一个从通道读取十进制整数的分词器。每个字节按 ISO-8859-1 解码成一个
+     * 字符。
+     * Creates a tokenizer reading decimal integers from a channel. Each
+     * byte is decoded as one ISO-8859-1 character.
+     *
+     * @param ch 字节通道
+     *           the byte channel
+     */
+    public IntTokenizer(ReadableByteChannel ch) {
+        this(Channels.newReader(ch, StandardCharsets.ISO_8859_1.newDecoder(), -1), 10);
+    }
+
+    /**
+     * 把 {@code low} 到 {@code hi} 之间(包含两端)的字符设为分隔符。
+     * Makes the characters from {@code low} through {@code hi} delimiters.
+     *
+     * @param low 范围的下界
+     *            the low end of the range
+     * @param hi  范围的上界
+     *            the high end of the range
+     */
+    public void delimiterChars(int low, int hi) {
+        setDelimiters(low, hi, true);
+    }
+
+    /**
+     * 把 {@code low} 到 {@code hi} 之间(包含两端)的字符设为普通字符，它们会
+     * 成为记号的一部分。
+     * Makes the characters from {@code low} through {@code hi} ordinary, so
+     * they become part of tokens.
+     *
+     * @param low 范围的下界
+     *            the low end of the range
+     * @param hi  范围的上界
+     *            the high end of the range
+     */
+    public void ordinaryChars(int low, int hi) {
+        setDelimiters(low, hi, false);
+    }
+
+    private void setDelimiters(int low, int hi, boolean on) {
+        if (low < 0)
+            low = 0;
+        if (hi >= delimiter.length)
+            hi = delimiter.length - 1;
+        while (low <= hi)
+            delimiter[low++] = on;
+    }
+
+    private boolean isDelimiter(char c) {
+        return c < 256 && delimiter[c];
+    }
+
+    /**
+     * 读取下一个记号，返回 {@link #TT_INT}、{@link #TT_MALFORMED} 或者
+     * {@link #TT_EOF}。
+     * Reads the next token and returns {@link #TT_INT},
+     * {@link #TT_MALFORMED} or {@link #TT_EOF}.
+     *
+     * @return 记号的类型
+     *         the type of the token
+     * @throws IOException 如果读取时发生 I/O 错误
+     *         if an I/O error occurs
+     */
+    public int nextToken() throws IOException {
+        overlong = false;
+        errorPosition = -1;
+        for (;;) {
+            if (pos == limit && !fill(pos)) {
+                tokenStart = tokenEnd = pos;
+                tokenPosition = base + pos;
+                return ttype = TT_EOF;
+            }
+            if (!isDelimiter(buf[pos]))
+                break;
+            pos++;
+        }
+        tokenPosition = base + pos;
+        int start = pos;
+        for (;;) {
+            if (pos == limit) {
+                if (pos - start >= MAX_TOKEN_LENGTH) {
+                    skipToken();
+                    break;
+                }
+                int shift = start;
+                boolean more = fill(start);
+                start -= shift;
+                if (!more)
+                    break;
+            }
+            if (isDelimiter(buf[pos]))
+                break;
+            pos++;
+        }
+        tokenStart = start;
+        tokenEnd = pos;
+        if (overlong) {
+            errorPosition = tokenPosition + MAX_TOKEN_LENGTH;
+            return ttype = TT_MALFORMED;
+        }
+        long result = Integer.tryParseInt(view, start, pos, radix);
+        if (result < 0) {
+            errorPosition = base + ~result;
+            return ttype = TT_MALFORMED;
+        }
+        value = (int) result;
+        return ttype = TT_INT;
+    }
+
+    /**
+     * 丢弃过长记号的剩余部分。
+     * Discards the rest of an overlong token.
+     */
+    private void skipToken() throws IOException {
+        overlong = true;
+        for (;;) {
+            if (pos == limit && !fill(pos))
+                return;
+            if (isDelimiter(buf[pos]))
+                return;
+            pos++;
+        }
+    }
+
+    /**
+     * 保留 {@code keep} 之后的字符，把它们移到缓冲区的开头，必要时扩大缓冲区，
+     * 然后读入更多的字符。到达输入末尾时返回 {@code false}。
+     * Keeps the characters from {@code keep} on, moving them to the front
+     * of the buffer and growing it if needed, then reads more input.
+     * Returns {@code false} at the end of the input.
+     */
+    private boolean fill(int keep) throws IOException {
+        if (eof)
+            return false;
+        if (keep > 0) {
+            System.arraycopy(buf, keep, buf, 0, limit - keep);
+            base += keep;
+            pos -= keep;
+            limit -= keep;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length << 1);
+            view = CharBuffer.wrap(buf);
+        }
+        int n;
+        do {
+            n = in.read(buf, limit, buf.length - limit);
+        } while (n == 0);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    /**
+     * 返回最后一个记号的类型，还没有调用过 {@link #nextToken()} 时返回
+     * {@code TT_EOF - 1}。
+     * Returns the type of the last token, or {@code TT_EOF - 1} if
+     * {@link #nextToken()} has not been called.
+     *
+     * @return 记号的类型
+     *         the type of the last token
+     */
+    public int tokenType() {
+        return ttype;
+    }
+
+    /**
+     * 返回最后一个 {@link #TT_INT} 记号的值。
+     * Returns the value of the last {@link #TT_INT} token.
+     *
+     * @return 整数的值
+     *         the integer value
+     * @throws IllegalStateException 如果最后一个记号不是 {@link #TT_INT}
+     *         if the last token is not {@link #TT_INT}
+     */
+    public int intValue() {
+        if (ttype != TT_INT)
+            throw new IllegalStateException("Not an integer token");
+        return value;
+    }
+
+    /**
+     * 返回最后一个记号开始的位置，{@link #TT_EOF} 时是输入的长度。
+     * Returns the position at which the last token starts, or the length of
+     * the input for {@link #TT_EOF}.
+     *
+     * @return 记号的位置
+     *         the position of the token
+     */
+    public long tokenPosition() {
+        return tokenPosition;
+    }
+
+    /**
+     * 返回最后一个 {@link #TT_MALFORMED} 记号中第一个出错字符的位置，其他情况
+     * 返回 -1。只有符号的记号指向符号之后，溢出的记号指向使它溢出的那个数字。
+     * Returns the position of the first offending character of the last
+     * {@link #TT_MALFORMED} token, or -1 otherwise. A sign-only token points
+     * just past the sign and an overflowing token at the digit that
+     * overflows.
+     *
+     * @return 出错的位置
+     *         the position of the error
+     */
+    public long errorPosition() {
+        return errorPosition;
+    }
+
+    /**
+     * 返回最后一个记号的文本，只在出错时才需要调用，因为它会创建字符串。超过
+     * {@link #MAX_TOKEN_LENGTH} 的记号没有被缓存，返回 {@code null}。
+     * Returns the text of the last token. It allocates, so it is meant for
+     * error reporting. Returns {@code null} for a token longer than
+     * {@link #MAX_TOKEN_LENGTH}, which was not buffered.
+     *
+     * @return 记号的文本
+     *         the text of the token
+     */
+    public String tokenText() {
+        return overlong ? null : new String(buf, tokenStart, tokenEnd - tokenStart);
+    }
+
+    /**
+     * 关闭底层的输入流。
+     * Closes the underlying stream.
+     *
+     * @throws IOException 如果发生 I/O 错误
+     *         if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * 返回当前记号的字符串表示，用于调试。
+     * Returns a string representation of the current token, for debugging.
+     *
+     * @return 字符串表示
+     *         a string representation
+     */
+    @Override
+    public String toString() {
+        String t;
+        switch (ttype) {
+        case TT_EOF:
+            t = "EOF";
+            break;
+        case TT_INT:
+            t = "n=" + value;
+            break;
+        case TT_MALFORMED:
+            t = "malformed at " + errorPosition;
+            break;
+        default:
+            t = "NOTHING";
+        }
+        return "Token[" + t + "], position " + tokenPosition;
+    }
+}
@@ -0,0 +1,1085 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An ordered map that keeps its entries outside the Java heap, so that a
+ * large cache adds nothing for the garbage collector to trace.  Keys and
+ * values are stored in serialized form, together with the hash chains and
+ * the before/after links of the iteration order, in direct
+ * {@link ByteBuffer} pages; the heap holds only the page and table
+ * buffers themselves and a few bookkeeping arrays.
+ *
+ * <p>Keys and values are converted with the {@link Serializer}s given at
+ * construction.  Two keys are the same key when their serialized bytes
+ * are equal, so a key serializer must write equal keys as equal bytes;
+ * {@code equals} and {@code hashCode} of the key class are not used.
+ * Every {@code get} returns a freshly deserialized copy of the value, and
+ * the entries returned by the iterators are immutable snapshots.
+ *
+ * <p>Like {@link LinkedHashMap}, the map is ordered by insertion or, if
+ * created with <tt>accessOrder</tt> set, by access, and
+ * {@link #removeEldestEntry(Map.Entry)} is consulted after every insertion
+ * exactly as in {@code LinkedHashMap}.  The eldest entry passed to it
+ * deserializes its key and value only when asked, so a policy that looks
+ * at {@link #size()} or {@link #memoryUsed()} alone reads nothing:
+ * <pre>
+ *     protected boolean removeEldestEntry(Map.Entry&lt;K,V&gt; eldest) {
+ *        return memoryUsed() &gt; MAX_BYTES;
+ *     }
+ * </pre>
+ *
+ * <p>Entries are carved from pages by a size-class allocator: each entry
+ * takes the smallest class that holds its header, key and value, and freed
+ * blocks are reused by later entries of the same class.  An entry larger
+ * than a page gets a page of its own, which is released when the entry is
+ * removed.  Entries never move: a value replaced by one too large for its
+ * entry's block is kept in a block of its own instead.  Direct memory
+ * counts against {@code -XX:MaxDirectMemorySize}.
+ *
+ * <p>{@link #close()} releases all off-heap memory at once; after that the
+ * map may not be used.  A map that becomes unreachable without being
+ * closed has its memory released by the buffers' cleaners, at the
+ * garbage collector's convenience.
+ *
+ * <p>This map does not permit {@code null} keys or values.
+ * <strong>Note that this implementation is not synchronized.</strong>
+ * The iterators of the collection views are fail-fast.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see LinkedHashMap
+ */
+public class OffHeapLinkedHashMap<K,V> extends AbstractMap<K,V>
+    implements Closeable
+{
+    /**
+     * Converts objects to and from the bytes stored by the map.
+     *
+     * @param <T> the type of the objects converted
+     */
+    public interface Serializer<T> {
+        /**
+         * Returns the number of bytes {@link #write} will produce for
+         * {@code value}.
+         *
+         * @param  value the object to measure
+         * @return the serialized size of the object
+         */
+        int size(T value);
+
+        /**
+         * Writes exactly {@link #size(Object) size(value)} bytes for
+         * {@code value} at the current position of {@code dst}.
+         *
+         * @param value the object to write
+         * @param dst   the buffer to write to; it must not be retained
+         */
+        void write(T value, ByteBuffer dst);
+
+        /**
+         * Reads an object back from the bytes between the position and
+         * the limit of {@code src}.
+         *
+         * @param  src the buffer to read from; it must not be retained
+         * @return the object read
+         */
+        T read(ByteBuffer src);
+    }
+
+    /**
+     * Stores byte arrays as they are.
+     */
+    public static final Serializer<byte[]> BYTES = new Serializer<byte[]>() {
+        public int size(byte[] value)                { return value.length; }
+        public void write(byte[] value, ByteBuffer dst) { dst.put(value); }
+        public byte[] read(ByteBuffer src) {
+            byte[] b = new byte[src.remaining()];
+            src.get(b);
+            return b;
+        }
+    };
+
+    /**
+     * Stores strings as UTF-8.
+     */
+    public static final Serializer<String> STRING = new Serializer<String>() {
+        public int size(String value) {
+            int n = value.length(), size = n;
+            for (int i = 0; i < n; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    if (c < 0x800)
+                        size++;
+                    else if (!Character.isSurrogate(c))
+                        size += 2;
+                    else if (Character.isHighSurrogate(c) && i + 1 < n &&
+                             Character.isLowSurrogate(value.charAt(i + 1))) {
+                        size += 2;
+                        i++;
+                    }
+                    // an unpaired surrogate is encoded as '?'
+                }
+            }
+            return size;
+        }
+        public void write(String value, ByteBuffer dst) {
+            dst.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+        public String read(ByteBuffer src) {
+            byte[] b = new byte[src.remaining()];
+            src.get(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+    };
+
+    /*
+     * Entry layout.  Addresses are (page index + 1) << 32 | offset, so that
+     * 0 is the null address and a fresh (zeroed) table is empty.  Free
+     * blocks chain through their BEFORE field.  A value that outgrew its
+     * entry's block sits at HEADER in a separate block, which records only
+     * its SIZE_CLASS.
+     */
+    static final int BEFORE       = 0;   // long
+    static final int AFTER        = 8;   // long
+    static final int NEXT         = 16;  // long, hash chain
+    static final int HASH         = 24;  // int
+    static final int KEY_LENGTH   = 28;  // int
+    static final int VALUE_LENGTH = 32;  // int
+    static final int SIZE_CLASS   = 36;  // int, or LARGE
+    static final int VALUE_BLOCK  = 40;  // long, separate value block, or 0
+    static final int HEADER       = 48;
+
+    /** The size class of an entry that has a page of its own. */
+    static final int LARGE = -1;
+
+    /** The default page size. */
+    static final int DEFAULT_PAGE_SIZE = 1 << 20;
+
+    /** The smallest page size. */
+    static final int MINIMUM_PAGE_SIZE = 1 << 12;
+
+    static final int DEFAULT_BUCKETS = 16;
+
+    /** The largest number of buckets; the table then takes 1GB. */
+    static final int MAXIMUM_BUCKETS = 1 << 27;
+
+    final Serializer<K> keySerializer;
+    final Serializer<V> valueSerializer;
+    final boolean accessOrder;
+    final int pageSize;
+
+    /** Block size of each size class, ascending; the last is the page size. */
+    final int[] classSizes;
+
+    /** Head of the free list of each size class. */
+    final long[] freeBlocks;
+
+    /** Pages, and a reusable duplicate of each for serializers. */
+    ByteBuffer[] pages, views;
+    int pageCount;
+
+    /** Indexes of released large-entry pages, for reuse. */
+    int[] freePages = new int[8];
+    int freePageCount;
+
+    /** Where the next block is carved, or -1 before the first page. */
+    int bumpPage = -1;
+    int bumpOffset;
+
+    /** Bucket heads, one long address each. */
+    ByteBuffer table;
+    int buckets;
+
+    long head, tail;
+    int size;
+    int modCount;
+
+    /** Bytes of the blocks holding live entries. */
+    long memoryUsed;
+
+    /** Heap buffer holding the serialized form of the key looked up. */
+    ByteBuffer scratch = ByteBuffer.allocate(64).order(ByteOrder.nativeOrder());
+
+    /** The chain predecessor of the entry last found, or 0. */
+    long foundPrev;
+
+    boolean closed;
+
+    /**
+     * Constructs an empty insertion-ordered map with the default page
+     * size.
+     *
+     * @param  keySerializer   converts the keys
+     * @param  valueSerializer converts the values
+     * @throws NullPointerException if either serializer is null
+     */
+    public OffHeapLinkedHashMap(Serializer<K> keySerializer,
+                                Serializer<V> valueSerializer) {
+        this(keySerializer, valueSerializer, DEFAULT_PAGE_SIZE, false);
+    }
+
+    /**
+     * Constructs an empty map with the specified page size and ordering
+     * mode.
+     *
+     * @param  keySerializer   converts the keys
+     * @param  valueSerializer converts the values
+     * @param  pageSize        the size of each page of direct memory,
+     *         rounded up to a power of two of at least 4096 bytes; entries
+     *         larger than this get a page of their own
+     * @param  accessOrder     the ordering mode - <tt>true</tt> for
+     *         access-order, <tt>false</tt> for insertion-order
+     * @throws NullPointerException if either serializer is null
+     * @throws IllegalArgumentException if the page size is not positive or
+     *         larger than 2<sup>30</sup>
+     */
+    public OffHeapLinkedHashMap(Serializer<K> keySerializer,
+                                Serializer<V> valueSerializer,
+                                int pageSize, boolean accessOrder) {
+        if (keySerializer == null || valueSerializer == null)
+            throw new NullPointerException();
+        if (pageSize <= 0 || pageSize > 1 << 30)
+            throw new IllegalArgumentException("Illegal page size: " + pageSize);
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.accessOrder = accessOrder;
+        int p = MINIMUM_PAGE_SIZE;
+        while (p < pageSize)
+            p <<= 1;
+        this.pageSize = p;
+        this.classSizes = sizeClasses(p);
+        this.freeBlocks = new long[classSizes.length];
+        this.pages = new ByteBuffer[8];
+        this.views = new ByteBuffer[8];
+        this.buckets = DEFAULT_BUCKETS;
+        this.table = allocateDirect(DEFAULT_BUCKETS << 3);
+    }
+
+    /**
+     * Returns block sizes growing by about a quarter from the smallest
+     * useful entry up to the page size, so no block wastes more than
+     * about a fifth of itself.
+     */
+    static int[] sizeClasses(int pageSize) {
+        int[] sizes = new int[64];
+        int n = 0;
+        for (int s = HEADER + 8; ; ) {
+            if (n == sizes.length)
+                sizes = Arrays.copyOf(sizes, n << 1);
+            if (s >= pageSize) {
+                sizes[n++] = pageSize;
+                return Arrays.copyOf(sizes, n);
+            }
+            sizes[n++] = s;
+            s = Math.max(s + 8, (s + (s >> 2) + 7) & ~7);
+        }
+    }
+
+    private static ByteBuffer allocateDirect(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    private static void free(ByteBuffer buffer) {
+        sun.misc.Cleaner cleaner = ((sun.nio.ch.DirectBuffer) buffer).cleaner();
+        if (cleaner != null)
+            cleaner.clean();
+    }
+
+    private void ensureOpen() {
+        if (closed)
+            throw new IllegalStateException("Map is closed");
+    }
+
+    // Addresses
+
+    private ByteBuffer page(long addr) {
+        return pages[(int) (addr >>> 32) - 1];
+    }
+
+    private static int offset(long addr) {
+        return (int) addr;
+    }
+
+    private long getLong(long addr, int field) {
+        return page(addr).getLong(offset(addr) + field);
+    }
+
+    private void putLong(long addr, int field, long value) {
+        page(addr).putLong(offset(addr) + field, value);
+    }
+
+    private int getInt(long addr, int field) {
+        return page(addr).getInt(offset(addr) + field);
+    }
+
+    private void putInt(long addr, int field, int value) {
+        page(addr).putInt(offset(addr) + field, value);
+    }
+
+    /**
+     * Returns the reusable view of the page holding {@code addr}, limited
+     * to {@code length} bytes at {@code field}.
+     */
+    private ByteBuffer view(long addr, int field, int length) {
+        ByteBuffer v = views[(int) (addr >>> 32) - 1];
+        int start = offset(addr) + field;
+        v.clear();
+        v.limit(start + length).position(start);
+        return v;
+    }
+
+    // Allocator
+
+    /**
+     * Returns the size class holding {@code size} bytes, or {@link #LARGE}.
+     */
+    final int classFor(int size) {
+        int[] sizes = classSizes;
+        if (size > sizes[sizes.length - 1])
+            return LARGE;
+        int lo = 0, hi = sizes.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sizes[mid] < size)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private int newPage(int capacity) {
+        int p;
+        if (freePageCount > 0)
+            p = freePages[--freePageCount];
+        else {
+            if (pageCount == pages.length) {
+                pages = Arrays.copyOf(pages, pageCount << 1);
+                views = Arrays.copyOf(views, pageCount << 1);
+            }
+            p = pageCount++;
+        }
+        ByteBuffer page = allocateDirect(capacity);
+        pages[p] = page;
+        views[p] = page.duplicate().order(ByteOrder.nativeOrder());
+        return p;
+    }
+
+    private static long address(int page, int offset) {
+        return ((long) (page + 1) << 32) | offset;
+    }
+
+    /**
+     * Allocates a block for an entry of {@code size} bytes and records its
+     * size class in it.
+     */
+    private long allocate(int size) {
+        int c = classFor(size);
+        long addr;
+        if (c == LARGE) {
+            if (size > Integer.MAX_VALUE - 7)
+                throw new OutOfMemoryError("Entry too large");
+            int capacity = (size + 7) & ~7;
+            addr = address(newPage(capacity), 0);
+            memoryUsed += capacity;
+        } else {
+            int blockSize = classSizes[c];
+            if ((addr = freeBlocks[c]) != 0)
+                freeBlocks[c] = getLong(addr, BEFORE);
+            else {
+                if (bumpPage < 0 || bumpOffset > pageSize - blockSize) {
+                    bumpPage = newPage(pageSize);
+                    bumpOffset = 0;
+                }
+                addr = address(bumpPage, bumpOffset);
+                bumpOffset += blockSize;
+            }
+            memoryUsed += blockSize;
+        }
+        putInt(addr, SIZE_CLASS, c);
+        return addr;
+    }
+
+    private int blockSize(long addr) {
+        int c = getInt(addr, SIZE_CLASS);
+        return (c == LARGE) ? page(addr).capacity() : classSizes[c];
+    }
+
+    private void release(long addr) {
+        int c = getInt(addr, SIZE_CLASS);
+        if (c == LARGE) {
+            int p = (int) (addr >>> 32) - 1;
+            memoryUsed -= pages[p].capacity();
+            free(pages[p]);
+            pages[p] = views[p] = null;
+            if (freePageCount == freePages.length)
+                freePages = Arrays.copyOf(freePages, freePageCount << 1);
+            freePages[freePageCount++] = p;
+        } else {
+            memoryUsed -= classSizes[c];
+            putLong(addr, BEFORE, freeBlocks[c]);
+            freeBlocks[c] = addr;
+        }
+    }
+
+    // Keys and hashing
+
+    /**
+     * Serializes {@code key} into {@link #scratch} and returns its length.
+     */
+    private int serializeKey(Object key) {
+        if (key == null)
+            throw new NullPointerException();
+        @SuppressWarnings("unchecked") K k = (K) key;
+        int length = keySerializer.size(k);
+        ByteBuffer s = scratch;
+        if (length > s.capacity()) {
+            int capacity = Math.max(length, s.capacity() << 1);
+            scratch = s = ByteBuffer.allocate(capacity).order(ByteOrder.nativeOrder());
+        }
+        s.clear();
+        s.limit(length);
+        keySerializer.write(k, s);
+        if (s.position() != length)
+            throw new IllegalStateException("Key serializer wrote " +
+                                            s.position() + " bytes, not " + length);
+        return length;
+    }
+
+    /**
+     * Returns the MurmurHash3 (x86, 32-bit) body over the first
+     * {@code length} bytes of {@link #scratch}, finished with
+     * {@link Integer#mix(int)}.
+     */
+    private int hashKey(int length) {
+        ByteBuffer s = scratch;
+        int h = 0, i = 0;
+        for (; i <= length - 4; i += 4) {
+            int k = s.getInt(i) * 0xcc9e2d51;
+            h ^= Integer.rotateLeft(k, 15) * 0x1b873593;
+            h = Integer.rotateLeft(h, 13) * 5 + 0xe6546b64;
+        }
+        int k = 0;
+        for (int shift = 0; i < length; i++, shift += 8)
+            k |= (s.get(i) & 0xff) << shift;
+        h ^= Integer.rotateLeft(k * 0xcc9e2d51, 15) * 0x1b873593;
+        return Integer.mix(h ^ length);
+    }
+
+    private boolean keyEquals(long addr, int length) {
+        ByteBuffer p = page(addr), s = scratch;
+        int base = offset(addr) + HEADER, i = 0;
+        for (; i <= length - 8; i += 8) {
+            if (p.getLong(base + i) != s.getLong(i))
+                return false;
+        }
+        for (; i < length; i++) {
+            if (p.get(base + i) != s.get(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the entry whose key is the {@code length} bytes in
+     * {@link #scratch}, or 0, leaving its chain predecessor in
+     * {@link #foundPrev}.
+     */
+    private long find(int hash, int length) {
+        long prev = 0;
+        for (long e = table.getLong((hash & (buckets - 1)) << 3); e != 0;
+             e = getLong(e, NEXT)) {
+            if (getInt(e, HASH) == hash && getInt(e, KEY_LENGTH) == length &&
+                keyEquals(e, length)) {
+                foundPrev = prev;
+                return e;
+            }
+            prev = e;
+        }
+        return 0;
+    }
+
+    private long findKey(Object key) {
+        ensureOpen();
+        int length = serializeKey(key);
+        return find(hashKey(length), length);
+    }
+
+    K readKey(long addr) {
+        return keySerializer.read(view(addr, HEADER, getInt(addr, KEY_LENGTH)));
+    }
+
+    V readValue(long addr) {
+        long v = getLong(addr, VALUE_BLOCK);
+        int length = getInt(addr, VALUE_LENGTH);
+        return valueSerializer.read((v == 0) ?
+                                    view(addr, HEADER + getInt(addr, KEY_LENGTH), length) :
+                                    view(v, HEADER, length));
+    }
+
+    /**
+     * Writes {@code value}, of {@code length} bytes, at {@code field} of
+     * the block at {@code addr}.
+     */
+    private void writeValue(long addr, int field, V value, int length) {
+        ByteBuffer v = view(addr, field, length);
+        valueSerializer.write(value, v);
+        if (v.remaining() != 0)
+            throw new IllegalStateException("Value serializer wrote " +
+                                            (length - v.remaining()) +
+                                            " bytes, not " + length);
+    }
+
+    // Table and links
+
+    private void setChainPredecessor(long prev, int hash, long e) {
+        if (prev == 0)
+            table.putLong((hash & (buckets - 1)) << 3, e);
+        else
+            putLong(prev, NEXT, e);
+    }
+
+    private void resize() {
+        int n = buckets << 1;
+        ByteBuffer tab = allocateDirect(n << 3);
+        for (long e = head; e != 0; e = getLong(e, AFTER)) {
+            int b = (getInt(e, HASH) & (n - 1)) << 3;
+            putLong(e, NEXT, tab.getLong(b));
+            tab.putLong(b, e);
+        }
+        free(table);
+        table = tab;
+        buckets = n;
+    }
+
+    private void linkLast(long e) {
+        long last = tail;
+        putLong(e, BEFORE, last);
+        putLong(e, AFTER, 0);
+        if (last == 0)
+            head = e;
+        else
+            putLong(last, AFTER, e);
+        tail = e;
+    }
+
+    private void unlink(long e) {
+        long b = getLong(e, BEFORE), a = getLong(e, AFTER);
+        if (b == 0)
+            head = a;
+        else
+            putLong(b, AFTER, a);
+        if (a == 0)
+            tail = b;
+        else
+            putLong(a, BEFORE, b);
+    }
+
+    private void afterAccess(long e) {
+        if (accessOrder && tail != e) {
+            unlink(e);
+            linkLast(e);
+            ++modCount;
+        }
+    }
+
+    /**
+     * Removes entry {@code e}, whose chain predecessor is {@code prev}.
+     */
+    private void removeEntry(long e, long prev) {
+        setChainPredecessor(prev, getInt(e, HASH), getLong(e, NEXT));
+        unlink(e);
+        long v;
+        if ((v = getLong(e, VALUE_BLOCK)) != 0)
+            release(v);
+        release(e);
+        --size;
+        ++modCount;
+    }
+
+    private void removeEntry(long e) {
+        int hash = getInt(e, HASH);
+        long prev = 0;
+        for (long p = table.getLong((hash & (buckets - 1)) << 3); p != e;
+             p = getLong(p, NEXT))
+            prev = p;
+        removeEntry(e, prev);
+    }
+
+    // Map operations
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return findKey(key) != 0;
+    }
+
+    /**
+     * Returns a deserialized copy of the value to which the specified key
+     * is mapped, or {@code null} if this map contains no mapping for the
+     * key.  In an access-ordered map a successful lookup moves the mapping
+     * to the end of the order.
+     *
+     * @throws NullPointerException if the key is null
+     * @throws IllegalStateException if this map is closed
+     */
+    public V get(Object key) {
+        long e;
+        if ((e = findKey(key)) == 0)
+            return null;
+        afterAccess(e);
+        return readValue(e);
+    }
+
+    /**
+     * Associates the specified value with the specified key.  Replacing
+     * the value of an existing mapping is not a structural modification,
+     * whatever the size of the new value, so it may be done while
+     * iterating over the map.
+     *
+     * @return a deserialized copy of the previous value associated with
+     *         <tt>key</tt>, or <tt>null</tt> if there was no mapping for
+     *         <tt>key</tt>
+     * @throws NullPointerException if the key or value is null
+     * @throws IllegalStateException if this map is closed, or if the value
+     *         serializer writes a different number of bytes than it
+     *         reported; the map is then left unchanged
+     */
+    public V put(K key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        ensureOpen();
+        int keyLength = serializeKey(key);
+        int hash = hashKey(keyLength);
+        int valueLength = valueSerializer.size(value);
+        int entrySize = HEADER + keyLength + valueLength;
+        if (entrySize < 0)
+            throw new OutOfMemoryError("Entry too large");
+        long e = find(hash, keyLength);
+        if (e != 0) {
+            V old = readValue(e);
+            replaceValue(e, entrySize, value, valueLength);
+            afterAccess(e);
+            return old;
+        }
+        e = newEntry(entrySize, hash, keyLength, value, valueLength);
+        int b = (hash & (buckets - 1)) << 3;
+        putLong(e, NEXT, table.getLong(b));
+        table.putLong(b, e);
+        linkLast(e);
+        ++modCount;
+        if (++size > buckets - (buckets >>> 2) && buckets < MAXIMUM_BUCKETS)
+            resize();
+        afterInsert();
+        return null;
+    }
+
+    /**
+     * Allocates a block and writes the header, the key held in
+     * {@link #scratch} and the value into it, without linking it anywhere.
+     * If the value cannot be written the block is released again.
+     */
+    private long newEntry(int entrySize, int hash, int keyLength, V value,
+                          int valueLength) {
+        long e = allocate(entrySize);
+        try {
+            putInt(e, HASH, hash);
+            putInt(e, KEY_LENGTH, keyLength);
+            putInt(e, VALUE_LENGTH, valueLength);
+            putLong(e, VALUE_BLOCK, 0);
+            view(e, HEADER, keyLength).put(scratch.array(), scratch.arrayOffset(),
+                                           keyLength);
+            writeValue(e, HEADER + keyLength, value, valueLength);
+        } catch (Throwable t) {
+            release(e);
+            throw t;
+        }
+        return e;
+    }
+
+    /**
+     * Replaces the value of entry {@code e}, which would need
+     * {@code entrySize} bytes to hold it inline.  The value is first
+     * written to a block of its own, so that the old one is intact if the
+     * serializer fails.  It is then copied into the entry if it fits
+     * there; otherwise the new block becomes the entry's value block.
+     * Either way the entry keeps its address.
+     */
+    private void replaceValue(long e, int entrySize, V value, int valueLength) {
+        long v = allocate(HEADER + valueLength);
+        try {
+            writeValue(v, HEADER, value, valueLength);
+        } catch (Throwable t) {
+            release(v);
+            throw t;
+        }
+        if (entrySize <= blockSize(e)) {
+            ByteBuffer src = view(v, HEADER, valueLength).slice();
+            view(e, entrySize - valueLength, valueLength).put(src);
+            release(v);
+            v = 0;
+        }
+        long old;
+        if ((old = getLong(e, VALUE_BLOCK)) != 0)
+            release(old);
+        putLong(e, VALUE_BLOCK, v);
+        putInt(e, VALUE_LENGTH, valueLength);
+    }
+
+    private void afterInsert() {
+        long first;
+        if ((first = head) != 0) {
+            EldestEntry eldest = new EldestEntry(first);
+            boolean remove = removeEldestEntry(eldest);
+            eldest.addr = 0;
+            if (remove && head == first)
+                removeEntry(first);
+        }
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     *
+     * @return a deserialized copy of the previous value associated with
+     *         <tt>key</tt>, or <tt>null</tt> if there was no mapping for
+     *         <tt>key</tt>
+     * @throws NullPointerException if the key is null
+     * @throws IllegalStateException if this map is closed
+     */
+    public V remove(Object key) {
+        long e;
+        if ((e = findKey(key)) == 0)
+            return null;
+        V old = readValue(e);
+        removeEntry(e, foundPrev);
+        return old;
+    }
+
+    /**
+     * Removes all of the mappings from this map and releases the pages
+     * that held them.
+     *
+     * @throws IllegalStateException if this map is closed
+     */
+    public void clear() {
+        ensureOpen();
+        releasePages();
+        free(table);
+        buckets = DEFAULT_BUCKETS;
+        table = allocateDirect(DEFAULT_BUCKETS << 3);
+        head = tail = 0;
+        size = 0;
+        ++modCount;
+    }
+
+    private void releasePages() {
+        for (int p = 0; p < pageCount; p++) {
+            if (pages[p] != null)
+                free(pages[p]);
+            pages[p] = views[p] = null;
+        }
+        pageCount = 0;
+        freePageCount = 0;
+        bumpPage = -1;
+        bumpOffset = 0;
+        Arrays.fill(freeBlocks, 0L);
+        memoryUsed = 0;
+    }
+
+    /**
+     * Releases all of the off-heap memory held by this map.  Afterwards
+     * the map is empty and every operation other than {@code size},
+     * {@code isEmpty} and {@code close} throws
+     * {@link IllegalStateException}.  Closing a closed map has no effect.
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            releasePages();
+            free(table);
+            table = null;
+            head = tail = 0;
+            size = 0;
+            ++modCount;
+        }
+    }
+
+    /**
+     * Returns the number of bytes of direct memory taken by the blocks of
+     * the live entries and of their separate values, including per-entry
+     * headers and size-class rounding but not free blocks, unused page
+     * space or the hash table.
+     *
+     * @return the bytes held by live entries
+     */
+    public long memoryUsed() {
+        return memoryUsed;
+    }
+
+    /**
+     * Returns a snapshot of the eldest mapping of this map: the least
+     * recently inserted one, or in an access-ordered map the least
+     * recently accessed one.  Returns {@code null} if the map is empty.
+     * Calling this method does not count as an access.
+     *
+     * @return the eldest mapping, or {@code null} if the map is empty
+     * @throws IllegalStateException if this map is closed
+     */
+    public Map.Entry<K,V> eldest() {
+        ensureOpen();
+        long first;
+        return ((first = head) == 0) ? null :
+            new SimpleImmutableEntry<>(readKey(first), readValue(first));
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map should remove its eldest entry.
+     * This method is invoked by <tt>put</tt> and <tt>putAll</tt> after
+     * inserting a new entry into the map, exactly as
+     * {@link LinkedHashMap#removeEldestEntry(Map.Entry)} is.
+     *
+     * <p>The entry passed in deserializes its key and value only when
+     * they are asked for, and only while this method runs.  It does not
+     * support {@code setValue}.  If this method removes the eldest entry
+     * itself it should return <tt>false</tt>.
+     *
+     * @param    eldest The least recently inserted entry in the map, or if
+     *           this is an access-ordered map, the least recently accessed
+     *           entry.
+     * @return   <tt>true</tt> if the eldest entry should be removed
+     *           from the map; <tt>false</tt> if it should be retained.
+     */
+    protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
+        return false;
+    }
+
+    /**
+     * The eldest entry handed to {@link #removeEldestEntry(Map.Entry)}.
+     */
+    final class EldestEntry implements Map.Entry<K,V> {
+        long addr;
+        K key;
+        V value;
+
+        EldestEntry(long addr) {
+            this.addr = addr;
+        }
+
+        private long address() {
+            if (addr == 0)
+                throw new IllegalStateException("Entry is no longer valid");
+            return addr;
+        }
+
+        public K getKey() {
+            K k;
+            return ((k = key) != null) ? k : (key = readKey(address()));
+        }
+
+        public V getValue() {
+            V v;
+            return ((v = value) != null) ? v : (value = readValue(address()));
+        }
+
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            return getKey().equals(e.getKey()) && getValue().equals(e.getValue());
+        }
+
+        public int hashCode() {
+            return getKey().hashCode() ^ getValue().hashCode();
+        }
+
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    // Views
+
+    transient Set<K> keySet;
+    transient Collection<V> valuesView;
+    transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map, in
+     * iteration order.  Its iterator deserializes each key as it is
+     * returned and never reads the values.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<K> keySet() {
+        Set<K> ks;
+        return (ks = keySet) == null ? (keySet = new KeySet()) : ks;
+    }
+
+    final class KeySet extends AbstractSet<K> {
+        public final int size()                 { return size; }
+        public final void clear()               { OffHeapLinkedHashMap.this.clear(); }
+        public final Iterator<K> iterator()     { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            long e;
+            if ((e = findKey(key)) == 0)
+                return false;
+            removeEntry(e, foundPrev);
+            return true;
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map, in iteration order.  Its iterator deserializes each value as it
+     * is returned.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<V> values() {
+        Collection<V> vs;
+        return (vs = valuesView) == null ? (valuesView = new Values()) : vs;
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { OffHeapLinkedHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map, in
+     * iteration order.  Its iterator returns immutable snapshots of the
+     * entries.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { OffHeapLinkedHashMap.this.clear(); }
+        public final Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey(), value = e.getValue();
+            long a;
+            return key != null && value != null && (a = findKey(key)) != 0 &&
+                value.equals(readValue(a));
+        }
+        public final boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey(), value = e.getValue();
+            long a;
+            if (key == null || value == null || (a = findKey(key)) == 0)
+                return false;
+            long prev = foundPrev;
+            if (!value.equals(readValue(a)))
+                return false;
+            removeEntry(a, prev);
+            return true;
+        }
+    }
+
+    abstract class EntryCursor {
+        long next;
+        long current;
+        int expectedModCount;
+
+        EntryCursor() {
+            ensureOpen();
+            next = head;
+            expectedModCount = modCount;
+        }
+
+        public final boolean hasNext() {
+            return next != 0;
+        }
+
+        final long nextEntry() {
+            long e = next;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (e == 0)
+                throw new NoSuchElementException();
+            current = e;
+            next = getLong(e, AFTER);
+            return e;
+        }
+
+        public final void remove() {
+            long e = current;
+            if (e == 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = 0;
+            removeEntry(e);
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends EntryCursor implements Iterator<K> {
+        public final K next() { return readKey(nextEntry()); }
+    }
+
+    final class ValueIterator extends EntryCursor implements Iterator<V> {
+        public final V next() { return readValue(nextEntry()); }
+    }
+
+    final class EntryIterator extends EntryCursor
+        implements Iterator<Map.Entry<K,V>> {
+        public final Map.Entry<K,V> next() {
+            long e = nextEntry();
+            return new SimpleImmutableEntry<>(readKey(e), readValue(e));
+        }
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.util.function.IntConsumer;
+
+/**
+ * 一个不可变的压缩 {@code int} 数组。值按 128 个一组分块，每一块保存自己的
+ * 最小值(frame of reference)，块中每个值只保存它和最小值的差，位宽由块中最大
+ * 的差用 {@link Integer#numberOfLeadingZeros(int)} 算出。值域小或者取值集中的
+ * 数据通常只需要原来 {@code int[]} 的几分之一的内存。
+ * An immutable compressed {@code int} array. Values are grouped into blocks
+ * of 128; each block keeps its minimum as a frame of reference and stores
+ * every value as its offset from that minimum, using the bit width that
+ * {@link Integer#numberOfLeadingZeros(int)} gives for the largest offset in
+ * the block. Data with a small or clustered range usually takes a fraction
+ * of the memory of a plain {@code int[]}.
+ *
+ * <p>位宽为 {@code w} 的块正好占用 {@code 2 * w} 个 {@code long}，所以块与块
+ * 之间不会共享同一个 {@code long}。{@link #get(int)} 只需要读取一个块的元数据和
+ * 最多两个 {@code long}；顺序访问时请使用 {@link #get(int, int[], int, int)}、
+ * {@link #decodeBlock(int, int[], int)} 或者 {@link #forEach(IntConsumer)}，它们
+ * 每次解码一整块，而不需要展开整个数组。
+ * <p>A block of width {@code w} takes exactly {@code 2 * w} longs, so no
+ * long is shared between blocks. {@link #get(int)} reads the block header
+ * and at most two longs; sequential scans should use
+ * {@link #get(int, int[], int, int)}, {@link #decodeBlock(int, int[], int)}
+ * or {@link #forEach(IntConsumer)}, which decode a whole block at a time
+ * without expanding the entire array.
+ *
+ * @see Integer#numberOfLeadingZeros(int)
+ */
+public final class PackedIntArray {
+
+    /**
+     * 每一块的值的个数的以 2 为底的对数。
+     * Log2 of the number of values per block.
+     */
+    private static final int BLOCK_SHIFT = 7;
+
+    /**
+     * 每一块的值的个数。
+     * The number of values per block.
+     */
+    public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    /** 值的个数 The number of values. */
+    private final int size;
+
+    /** 每一块的最小值 The minimum of each block. */
+    private final int[] bases;
+
+    /** 每一块的位宽，0 到 32 The bit width of each block, 0 to 32. */
+    private final byte[] widths;
+
+    /** 每一块在 {@code words} 中的起始位置 The first word of each block. */
+    private final int[] offsets;
+
+    /** 所有块的位 The packed bits of all blocks. */
+    private final long[] words;
+
+    private PackedIntArray(int size, int[] bases, byte[] widths, int[] offsets, long[] words) {
+        this.size = size;
+        this.bases = bases;
+        this.widths = widths;
+        this.offsets = offsets;
+        this.words = words;
+    }
+
+    /**
+     * 压缩整个数组。
+     * Packs the whole array.
+     *
+     * @param a 要压缩的数组
+     *          the values to pack
+     * @return 压缩后的数组
+     *         the packed array
+     */
+    public static PackedIntArray pack(int[] a) {
+        return pack(a, 0, a.length);
+    }
+
+    /**
+     * 压缩 {@code a} 中 {@code [fromIndex, toIndex)} 范围内的值。
+     * Packs the values of {@code a} in {@code [fromIndex, toIndex)}.
+     *
+     * @param a         要压缩的数组
+     *                  the values to pack
+     * @param fromIndex 开始的下标(包含)
+     *                  the first index, inclusive
+     * @param toIndex   结束的下标(不包含)
+     *                  the last index, exclusive
+     * @return 压缩后的数组
+     *         the packed array
+     * @throws IllegalArgumentException 如果 {@code fromIndex > toIndex}
+     *         if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException 如果 {@code fromIndex < 0} 或者
+     *         {@code toIndex > a.length}
+     *         if {@code fromIndex < 0} or {@code toIndex > a.length}
+     */
+    public static PackedIntArray pack(int[] a, int fromIndex, int toIndex) {
+        Arrays.rangeCheck(a.length, fromIndex, toIndex);
+        int size = toIndex - fromIndex;
+        int blocks = (size + BLOCK_MASK) >>> BLOCK_SHIFT;
+        int[] bases = new int[blocks];
+        byte[] widths = new byte[blocks];
+        int[] offsets = new int[blocks];
+        long totalWords = 0;
+        for (int b = 0; b < blocks; b++) {
+            int lo = fromIndex + (b << BLOCK_SHIFT);
+            int hi = Math.min(lo + BLOCK_SIZE, toIndex);
+            int min = a[lo], max = min;
+            for (int i = lo + 1; i < hi; i++) {
+                int v = a[i];
+                if (v < min) min = v;
+                if (v > max) max = v;
+            }
+            // max - min 当做无符号数不会溢出
+            // max - min does not overflow when read as unsigned
+            int width = Integer.SIZE - Integer.numberOfLeadingZeros(max - min);
+            bases[b] = min;
+            widths[b] = (byte) width;
+            offsets[b] = (int) totalWords;
+            totalWords += width << 1;
+        }
+        if (totalWords > Integer.MAX_VALUE - 8)
+            throw new OutOfMemoryError("Required array size too large");
+        long[] words = new long[(int) totalWords];
+        for (int b = 0; b < blocks; b++) {
+            int width = widths[b];
+            if (width == 0)
+                continue;
+            int lo = fromIndex + (b << BLOCK_SHIFT);
+            int hi = Math.min(lo + BLOCK_SIZE, toIndex);
+            int base = bases[b];
+            int w = offsets[b];
+            long bit = 0;
+            for (int i = lo; i < hi; i++, bit += width) {
+                long delta = (a[i] - base) & 0xffffffffL;
+                int index = w + (int) (bit >>> 6);
+                int shift = (int) bit & 63;
+                words[index] |= delta << shift;
+                if (shift + width > 64)
+                    words[index + 1] |= delta >>> (64 - shift);
+            }
+        }
+        return new PackedIntArray(size, bases, widths, offsets, words);
+    }
+
+    /**
+     * 返回值的个数。
+     * Returns the number of values.
+     *
+     * @return 值的个数
+     *         the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 返回块的个数。
+     * Returns the number of blocks.
+     *
+     * @return 块的个数
+     *         the number of blocks
+     */
+    public int blockCount() {
+        return bases.length;
+    }
+
+    /**
+     * 返回压缩后的数据大约占用的字节数，不包括对象头。
+     * Returns the approximate number of bytes held by the packed data,
+     * excluding object headers.
+     *
+     * @return 占用的字节数
+     *         the number of bytes used
+     */
+    public long sizeInBytes() {
+        return (long) words.length * Long.BYTES + (long) bases.length * (Integer.BYTES * 2 + 1);
+    }
+
+    /**
+     * 返回下标为 {@code index} 的值。
+     * Returns the value at {@code index}.
+     *
+     * @param index 值的下标
+     *              the index of the value
+     * @return 对应的值
+     *         the value at {@code index}
+     * @throws IndexOutOfBoundsException 如果下标越界
+     *         if {@code index} is out of range
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        int b = index >>> BLOCK_SHIFT;
+        int width = widths[b];
+        if (width == 0)
+            return bases[b];
+        int bit = (index & BLOCK_MASK) * width;
+        int w = offsets[b] + (bit >>> 6);
+        int shift = bit & 63;
+        long v = words[w] >>> shift;
+        if (shift + width > 64)
+            v |= words[w + 1] << (64 - shift);
+        return bases[b] + (int) (v & ((1L << width) - 1));
+    }
+
+    /**
+     * 把第 {@code block} 块解码到 {@code dst} 从 {@code offset} 开始的位置，返回
+     * 解码的值的个数，除了最后一块以外都是 {@link #BLOCK_SIZE}。
+     * Decodes block number {@code block} into {@code dst} starting at
+     * {@code offset}, and returns the number of values decoded, which is
+     * {@link #BLOCK_SIZE} for every block but the last.
+     *
+     * @param block  块的序号
+     *               the block number
+     * @param dst    存放结果的数组
+     *               the destination array
+     * @param offset {@code dst} 中开始存放的位置
+     *               the start offset in {@code dst}
+     * @return 解码的值的个数
+     *         the number of values decoded
+     * @throws IndexOutOfBoundsException 如果块的序号越界，或者 {@code dst}
+     *         放不下
+     *         if {@code block} is out of range or
+     *         {@code dst} does not have room
+     */
+    public int decodeBlock(int block, int[] dst, int offset) {
+        if (block < 0 || block >= bases.length)
+            throw new IndexOutOfBoundsException("Block: " + block + ", Blocks: " + bases.length);
+        int count = Math.min(BLOCK_SIZE, size - (block << BLOCK_SHIFT));
+        if (offset < 0 || offset > dst.length - count)
+            throw new IndexOutOfBoundsException("Offset: " + offset + ", Length: " + dst.length);
+        decode(block, 0, count, dst, offset);
+        return count;
+    }
+
+    /**
+     * 把从 {@code index} 开始的 {@code length} 个值解码到 {@code dst} 从
+     * {@code offset} 开始的位置。
+     * Decodes {@code length} values starting at {@code index} into
+     * {@code dst} starting at {@code offset}.
+     *
+     * @param index  第一个值的下标
+     *               the index of the first value
+     * @param dst    存放结果的数组
+     *               the destination array
+     * @param offset {@code dst} 中开始存放的位置
+     *               the start offset in {@code dst}
+     * @param length 值的个数
+     *               the number of values
+     * @throws IndexOutOfBoundsException 如果范围越界，或者 {@code dst} 放不下
+     *         if the range is out of bounds or
+     *         {@code dst} does not have room
+     */
+    public void get(int index, int[] dst, int offset, int length) {
+        if (index < 0 || length < 0 || index > size - length)
+            throw new IndexOutOfBoundsException(
+                "Index: " + index + ", Length: " + length + ", Size: " + size);
+        if (offset < 0 || offset > dst.length - length)
+            throw new IndexOutOfBoundsException("Offset: " + offset + ", Length: " + dst.length);
+        int end = index + length;
+        while (index < end) {
+            int b = index >>> BLOCK_SHIFT;
+            int from = index & BLOCK_MASK;
+            int to = Math.min(BLOCK_SIZE, end - (b << BLOCK_SHIFT));
+            decode(b, from, to, dst, offset);
+            offset += to - from;
+            index += to - from;
+        }
+    }
+
+    /**
+     * 返回一个包含所有值的新数组。
+     * Returns a new array holding every value.
+     *
+     * @return 展开后的数组
+     *         the expanded array
+     */
+    public int[] toArray() {
+        int[] a = new int[size];
+        get(0, a, 0, size);
+        return a;
+    }
+
+    /**
+     * 按顺序对每个值执行 {@code action}，每次只解码一块。
+     * Performs {@code action} on every value in order, decoding one block
+     * at a time.
+     *
+     * @param action 要执行的操作
+     *               the action to perform
+     */
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action);
+        int[] buf = new int[BLOCK_SIZE];
+        for (int b = 0; b < bases.length; b++) {
+            int count = Math.min(BLOCK_SIZE, size - (b << BLOCK_SHIFT));
+            decode(b, 0, count, buf, 0);
+            for (int i = 0; i < count; i++)
+                action.accept(buf[i]);
+        }
+    }
+
+    /**
+     * 把第 {@code b} 块中下标在 {@code [from, to)} 的值解码到 {@code dst}。
+     * Decodes the values of block {@code b} at positions {@code [from, to)}
+     * into {@code dst}.
+     */
+    private void decode(int b, int from, int to, int[] dst, int offset) {
+        int base = bases[b];
+        int width = widths[b];
+        if (width == 0) {
+            Arrays.fill(dst, offset, offset + to - from, base);
+            return;
+        }
+        long[] words = this.words;
+        int w = offsets[b];
+        long mask = (1L << width) - 1;
+        int bit = from * width;
+        for (int i = from; i < to; i++, bit += width) {
+            int index = w + (bit >>> 6);
+            int shift = bit & 63;
+            long v = words[index] >>> shift;
+            if (shift + width > 64)
+                v |= words[index + 1] << (64 - shift);
+            dst[offset++] = base + (int) (v & mask);
+        }
+    }
+}
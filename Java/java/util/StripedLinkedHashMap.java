@@ -0,0 +1,531 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A thread-safe map made of several independent {@link LinkedHashMap}
+ * <i>segments</i>.  Each key is hashed to one segment, and each segment
+ * has its own lock, its own slice of the maximum size and its own run of
+ * {@link #removeEldestEntry(Map.Entry, int, int)}, so threads working on
+ * different segments do not contend.
+ *
+ * <p>Eviction is per segment: when a segment grows past its share of the
+ * maximum size, its own eldest entry is removed, not necessarily the
+ * eldest of the whole map.  The maximum size is therefore an upper bound
+ * that is only approached: a map whose keys happen to crowd into a few
+ * segments evicts from them while the others still have room.  With a
+ * reasonable hash function the segments fill evenly and the result is
+ * close to a single {@code LinkedHashMap}.
+ *
+ * <p>Every entry carries a sequence number drawn from a counter shared by
+ * all segments: when it is inserted, and in an access-ordered map also
+ * whenever it is accessed.  {@link #eldest()} and the iterators of the
+ * collection views use these numbers to merge the segments into one
+ * global insertion (or access) order.  The iterators work on a snapshot
+ * taken one segment at a time; they never throw
+ * {@link ConcurrentModificationException} and may not reflect updates made
+ * after they were created.
+ *
+ * <p>Like {@code LinkedHashMap}, this class permits {@code null} keys and
+ * values.  The methods {@code putIfAbsent}, {@code remove(Object, Object)},
+ * {@code replace} and {@code computeIfAbsent} are atomic.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see LinkedHashMap
+ */
+public class StripedLinkedHashMap<K,V> extends AbstractMap<K,V> {
+
+    static final int MAX_SEGMENTS = 1 << 16;
+
+    /**
+     * A value together with its sequence number.  Guarded by the lock of
+     * the segment holding it.
+     */
+    static final class Stamped<V> {
+        V value;
+        long seq;
+
+        Stamped(V value, long seq) {
+            this.value = value;
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * One segment.  Its monitor is the segment lock.
+     */
+    static final class Segment<K,V> extends LinkedHashMap<K,Stamped<V>> {
+        private static final long serialVersionUID = 1L;
+
+        final transient StripedLinkedHashMap<K,V> map;
+        final int capacity;
+
+        Segment(StripedLinkedHashMap<K,V> map, int capacity, boolean accessOrder) {
+            super(16, 0.75f, accessOrder);
+            this.map = map;
+            this.capacity = capacity;
+        }
+
+        /**
+         * Looks up {@code key} without counting as an access.
+         */
+        Stamped<V> peek(Object key) {
+            Node<K,Stamped<V>> e = getNode(hash(key), key);
+            return (e == null) ? null : e.value;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K,Stamped<V>> eldest) {
+            return map.removeEldestEntry(
+                new SimpleImmutableEntry<>(eldest.getKey(), eldest.getValue().value),
+                size(), capacity);
+        }
+    }
+
+    final Segment<K,V>[] segments;
+
+    /**
+     * The number of bits of the spread hash that are not used to pick a
+     * segment.
+     */
+    final int segmentShift;
+
+    final boolean accessOrder;
+
+    final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Constructs an empty, unbounded, insertion-ordered map with one
+     * segment per available processor, rounded up to a power of two.
+     */
+    public StripedLinkedHashMap() {
+        this(Runtime.getRuntime().availableProcessors(), Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Constructs an empty map.
+     *
+     * @param  concurrencyLevel the number of segments, rounded up to a power
+     *         of two, but never more than {@code maximumSize}, so that each
+     *         segment can hold at least one entry
+     * @param  maximumSize the maximum size of the map, split evenly between
+     *         the segments and passed to
+     *         {@link #removeEldestEntry(Map.Entry, int, int)} as each
+     *         segment's capacity; {@code Integer.MAX_VALUE} for no limit
+     * @param  accessOrder the ordering mode - <tt>true</tt> for
+     *         access-order, <tt>false</tt> for insertion-order
+     * @throws IllegalArgumentException if {@code concurrencyLevel} or
+     *         {@code maximumSize} is not positive
+     */
+    public StripedLinkedHashMap(int concurrencyLevel, int maximumSize, boolean accessOrder) {
+        if (concurrencyLevel <= 0 || maximumSize <= 0)
+            throw new IllegalArgumentException();
+        int n = 1;
+        while (n < concurrencyLevel && n < MAX_SEGMENTS && n <= maximumSize >> 1)
+            n <<= 1;
+        @SuppressWarnings("unchecked")
+        Segment<K,V>[] segs = (Segment<K,V>[]) new Segment<?,?>[n];
+        int share = maximumSize / n, extra = maximumSize % n;
+        for (int i = 0; i < n; i++) {
+            int capacity = (maximumSize == Integer.MAX_VALUE) ?
+                Integer.MAX_VALUE : share + (i < extra ? 1 : 0);
+            segs[i] = new Segment<>(this, capacity, accessOrder);
+        }
+        this.segments = segs;
+        this.segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(n);
+        this.accessOrder = accessOrder;
+    }
+
+    /**
+     * Returns the segment for {@code key}.  The hash is mixed and the top
+     * bits are used, so the choice of segment does not correlate with the
+     * low bits each segment's own table uses.
+     */
+    final Segment<K,V> segmentFor(Object key) {
+        int h = (key == null) ? 0 : Integer.mix(key.hashCode());
+        return segments[(segmentShift == Integer.SIZE) ? 0 : h >>> segmentShift];
+    }
+
+    /**
+     * Returns the number of segments.
+     *
+     * @return the number of segments
+     */
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    private long nextSeq() {
+        return sequence.incrementAndGet();
+    }
+
+    /**
+     * Records an access to {@code s} under its segment lock.
+     */
+    private Stamped<V> touch(Stamped<V> s) {
+        if (s != null && accessOrder)
+            s.seq = nextSeq();
+        return s;
+    }
+
+    // Map operations
+
+    public int size() {
+        long n = 0;
+        for (Segment<K,V> seg : segments) {
+            synchronized (seg) {
+                n += seg.size();
+            }
+        }
+        return (n > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) n;
+    }
+
+    public boolean isEmpty() {
+        for (Segment<K,V> seg : segments) {
+            synchronized (seg) {
+                if (!seg.isEmpty())
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean containsKey(Object key) {
+        Segment<K,V> seg = segmentFor(key);
+        synchronized (seg) {
+            return seg.containsKey(key);
+        }
+    }
+
+    public boolean containsValue(Object value) {
+        for (Segment<K,V> seg : segments) {
+            synchronized (seg) {
+                for (Stamped<V> s : seg.values()) {
+                    if (Objects.equals(value, s.value))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.  In an
+     * access-ordered map this is an access to the entry.
+     */
+    public V get(Object key) {
+        Segment<K,V> seg = segmentFor(key);
+        synchronized (seg) {
+            Stamped<V> s = touch(seg.get(key));
+            return (s == null) ? null : s.value;
+        }
+    }
+
+    public V getOrDefault(Object key, V defaultValue) {
+        Segment<K,V> seg = segmentFor(key);
+        synchronized (seg) {
+            Stamped<V> s = touch(seg.get(key));
+            return (s == null) ? defaultValue : s.value;
+        }
+    }
+
+    public V put(K key, V value) {
+        Segment<K,V> seg = segmentFor(key);
+        synchronized (seg) {
+            Stamped<V> s = touch(seg.get(key));
+            if (s != null) {
+                V old = s.value;
+                s.value = value;
+                return old;
+            }
+            seg.put(key, new Stamped<>(value, nextSeq()));
+            return null;
+        }
+    }
+
+    public V putIfAbsent(K key, V value) {
+        Segment<K,V> seg = segmentFor(key);
+        synchronized (seg) {
+            Stamped<V> s = touch(seg.get(key));
+            if (s != null) {
+                if (s.value != null)
+                    return s.value;
+                s.value = value;
+                return null;
+            }
+            seg.put(key, new Stamped<>(value, nextSeq()));
+            return null;
+        }
+    }
+
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        Segment<K,V> seg = segmentFor(key);
+        synchronized (seg) {
+            Stamped<V> s = touch(seg.get(key));
+            if (s != null && s.value != null)
+                return s.value;
+            V v = mappingFunction.apply(key);
+            if (v != null) {
+                if (s != null)
+                    s.value = v;
+                else
+                    seg.put(key, new Stamped<>(v, nextSeq()));
+            }
+            return v;
+        }
+    }
+
+    public V remove(Object key) {
+        Segment<K,V> seg = segmentFor(key);
+        synchronized (seg) {
+            Stamped<V> s = seg.remove(key);
+            return (s == null) ? null : s.value;
+        }
+    }
+
+    public boolean remove(Object key, Object value) {
+        Segment<K,V> seg = segmentFor(key);
+        synchronized (seg) {
+            Stamped<V> s = seg.peek(key);
+            if (s == null || !Objects.equals(s.value, value))
+                return false;
+            seg.remove(key);
+            return true;
+        }
+    }
+
+    public boolean replace(K key, V oldValue, V newValue) {
+        Segment<K,V> seg = segmentFor(key);
+        synchronized (seg) {
+            Stamped<V> s = seg.peek(key);
+            if (s == null || !Objects.equals(s.value, oldValue))
+                return false;
+            touch(seg.get(key)).value = newValue;
+            return true;
+        }
+    }
+
+    public V replace(K key, V value) {
+        Segment<K,V> seg = segmentFor(key);
+        synchronized (seg) {
+            Stamped<V> s = seg.peek(key);
+            if (s == null)
+                return null;
+            V old = s.value;
+            touch(seg.get(key)).value = value;
+            return old;
+        }
+    }
+
+    public void clear() {
+        for (Segment<K,V> seg : segments) {
+            synchronized (seg) {
+                seg.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the eldest entry in the map, or {@code null} if
+     * the map is empty: of the eldest entries of all segments, the one with
+     * the lowest sequence number.  The segments are examined one at a
+     * time, so under concurrent updates the result is the eldest of a
+     * recent state of each segment.
+     *
+     * @return the eldest entry, or {@code null} if the map is empty
+     */
+    public Map.Entry<K,V> eldest() {
+        K key = null;
+        V value = null;
+        long best = Long.MAX_VALUE;
+        boolean found = false;
+        for (Segment<K,V> seg : segments) {
+            synchronized (seg) {
+                Map.Entry<K,Stamped<V>> e = seg.eldest();
+                if (e != null && e.getValue().seq < best) {
+                    best = e.getValue().seq;
+                    key = e.getKey();
+                    value = e.getValue().value;
+                    found = true;
+                }
+            }
+        }
+        return found ? new SimpleImmutableEntry<>(key, value) : null;
+    }
+
+    /**
+     * Returns <tt>true</tt> if a segment should remove its eldest entry.
+     * This method is invoked, with the segment lock held, after a new entry
+     * has been inserted into that segment, just as
+     * {@link LinkedHashMap#removeEldestEntry(Map.Entry)} is invoked after a
+     * new entry is put into a {@code LinkedHashMap}.  It must not access
+     * other segments of this map.
+     *
+     * <p>This implementation returns <tt>true</tt> when the segment holds
+     * more entries than its capacity, so the map as a whole never holds more
+     * than the {@code maximumSize} given at construction, though it may
+     * evict before reaching it when the segments fill unevenly.
+     *
+     * @param    eldest a snapshot of the eldest entry of the segment, the
+     *           one that will be removed if this method returns
+     *           <tt>true</tt>
+     * @param    segmentSize the number of entries in the segment, including
+     *           the one just inserted
+     * @param    segmentCapacity the segment's share of the maximum size
+     * @return   <tt>true</tt> if the eldest entry of the segment should be
+     *           removed; <tt>false</tt> if it should be retained.
+     */
+    protected boolean removeEldestEntry(Map.Entry<K,V> eldest, int segmentSize,
+                                        int segmentCapacity) {
+        return segmentSize > segmentCapacity;
+    }
+
+    // Views
+
+    private transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * Its iterator returns the entries in global insertion (or access)
+     * order, merged from per-segment snapshots, and supports removal.
+     * Iterating does not count as an access.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public int size() {
+            return StripedLinkedHashMap.this.size();
+        }
+
+        public void clear() {
+            StripedLinkedHashMap.this.clear();
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            Segment<K,V> seg = segmentFor(key);
+            synchronized (seg) {
+                Stamped<V> s = seg.peek(key);
+                return s != null && Objects.equals(s.value, e.getValue());
+            }
+        }
+
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            return StripedLinkedHashMap.this.remove(e.getKey(), e.getValue());
+        }
+
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new MergingIterator();
+        }
+    }
+
+    /**
+     * Merges snapshots of the segments by sequence number.  Each snapshot
+     * is already in order, so the merge picks the smallest head of all of
+     * them at every step.
+     */
+    final class MergingIterator implements Iterator<Map.Entry<K,V>> {
+        final Object[][] keys, values;
+        final long[][] seqs;
+        final int[] cursors;
+        Map.Entry<K,V> last;
+
+        MergingIterator() {
+            int n = segments.length;
+            keys = new Object[n][];
+            values = new Object[n][];
+            seqs = new long[n][];
+            cursors = new int[n];
+            for (int i = 0; i < n; i++) {
+                Segment<K,V> seg = segments[i];
+                synchronized (seg) {
+                    int size = seg.size();
+                    Object[] ks = new Object[size], vs = new Object[size];
+                    long[] ss = new long[size];
+                    int j = 0;
+                    for (Map.Entry<K,Stamped<V>> e : seg.entrySet()) {
+                        ks[j] = e.getKey();
+                        vs[j] = e.getValue().value;
+                        ss[j++] = e.getValue().seq;
+                    }
+                    keys[i] = ks;
+                    values[i] = vs;
+                    seqs[i] = ss;
+                }
+            }
+        }
+
+        private int nextSegment() {
+            int best = -1;
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < cursors.length; i++) {
+                int c = cursors[i];
+                if (c < seqs[i].length && seqs[i][c] < min) {
+                    min = seqs[i][c];
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        public boolean hasNext() {
+            return nextSegment() >= 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K,V> next() {
+            int i = nextSegment();
+            if (i < 0)
+                throw new NoSuchElementException();
+            int c = cursors[i]++;
+            return last = new SimpleImmutableEntry<>((K) keys[i][c], (V) values[i][c]);
+        }
+
+        public void remove() {
+            if (last == null)
+                throw new IllegalStateException();
+            StripedLinkedHashMap.this.remove(last.getKey(), last.getValue());
+            last = null;
+        }
+    }
+}
@@ -0,0 +1,654 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrent hash map that keeps its entries on a doubly linked list in
+ * insertion or access order, with the {@link #removeEldestEntry(Map.Entry)}
+ * and {@link #eldest()} contract of {@link java.util.LinkedHashMap}.  It is
+ * meant to replace a {@code LinkedHashMap} with <tt>accessOrder</tt> set to
+ * <tt>true</tt> that is wrapped in a single lock to serve as a shared LRU
+ * cache.
+ *
+ * <p>Mappings live in a {@link ConcurrentHashMap}, so lookups and updates
+ * of the table itself are as concurrent as they are there.  Only the
+ * linked list is guarded by a lock, the <i>eviction lock</i>:
+ * <ul>
+ * <li>A read does not touch the list.  It records the entry it found in a
+ * small lossy ring buffer chosen by the reading thread, and once the
+ * buffer is half full the reader <i>tries</i> to take the eviction lock
+ * and replay the buffered accesses in batches.  A reader that finds the
+ * lock held simply moves on, so reads never block.
+ * <li>An insertion takes the eviction lock, replays the pending reads,
+ * links the new entry and then consults {@link #removeEldestEntry}, just
+ * as {@code LinkedHashMap.put} does.  A removal takes the lock to unlink
+ * the entry.
+ * </ul>
+ *
+ * <p>The access order is therefore an approximation: an access becomes
+ * visible in the list only when its buffer is drained, and an access that
+ * finds its buffer full is dropped.  At most
+ * {@code bufferCount * BUFFER_SIZE} accesses can be pending at once, where
+ * {@code bufferCount} is the smallest power of two not below the number of
+ * processors; every insertion and every call to {@link #eldest()} drains
+ * all of them first.
+ *
+ * <p>Like {@code ConcurrentHashMap}, and unlike {@code LinkedHashMap}, this
+ * class does not permit {@code null} keys or values.  Iterators of the
+ * collection views are weakly consistent and traverse the entries in no
+ * particular order.  Which operations count as accesses follows
+ * {@code LinkedHashMap}: {@code get}, {@code put}, {@code putIfAbsent}
+ * on a present key and the {@code replace} methods that replace a value.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see java.util.LinkedHashMap
+ * @see ConcurrentHashMap
+ */
+public class ConcurrentLinkedHashMap<K,V> extends AbstractMap<K,V>
+    implements ConcurrentMap<K,V> {
+
+    /**
+     * The number of slots in each read buffer; a power of two.
+     */
+    static final int BUFFER_SIZE = 32;
+
+    static final int BUFFER_MASK = BUFFER_SIZE - 1;
+
+    /**
+     * The number of pending reads at which a reader tries to drain.
+     */
+    static final int DRAIN_THRESHOLD = BUFFER_SIZE >>> 1;
+
+    static final int MAX_BUFFERS = 64;
+
+    /**
+     * The entries of the map, as linked list nodes.
+     */
+    final ConcurrentHashMap<K,Node<K,V>> data;
+
+    /**
+     * True for access-order, false for insertion-order.
+     */
+    final boolean accessOrder;
+
+    /**
+     * Guards the linked list and the {@code linked} and {@code retired}
+     * fields of every node, and is the only lock under which read buffers
+     * are drained.
+     */
+    final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * The head (eldest) of the doubly linked list.
+     */
+    Node<K,V> head;
+
+    /**
+     * The tail (youngest) of the doubly linked list.
+     */
+    Node<K,V> tail;
+
+    final ReadBuffer[] readBuffers;
+
+    /**
+     * A mapping.  {@code value} and {@code alive} are guarded by the node's
+     * monitor for writers; {@code value} is volatile so reads need no lock.
+     * {@code prev}, {@code next}, {@code linked} and {@code retired} are
+     * guarded by the eviction lock.
+     */
+    static final class Node<K,V> {
+        final K key;
+        volatile V value;
+        boolean alive = true;
+        Node<K,V> prev, next;
+        boolean linked;
+        /** Set once the node has been removed from {@code data} and unlinked. */
+        boolean retired;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A lossy single-consumer ring buffer of recently read nodes.  Readers
+     * claim a slot by incrementing {@code writes}; the drainer, holding the
+     * eviction lock, consumes slots in order and advances {@code reads}.
+     * A reader that finds the buffer full drops its access.
+     */
+    static final class ReadBuffer {
+        final AtomicReferenceArray<Node<?,?>> slots =
+            new AtomicReferenceArray<>(BUFFER_SIZE);
+        final AtomicLong writes = new AtomicLong();
+        volatile long reads;
+
+        /**
+         * Records a read of {@code node}, and returns true if the buffer is
+         * full enough that the caller should try to drain it.
+         */
+        boolean offer(Node<?,?> node) {
+            long r = reads;
+            long w = writes.get();
+            long pending = w - r;
+            if (pending >= BUFFER_SIZE)
+                return true;
+            if (writes.compareAndSet(w, w + 1))
+                slots.lazySet((int) w & BUFFER_MASK, node);
+            return pending + 1 >= DRAIN_THRESHOLD;
+        }
+    }
+
+    /**
+     * Constructs an empty insertion-ordered map with the default initial
+     * capacity.
+     */
+    public ConcurrentLinkedHashMap() {
+        this(16, false);
+    }
+
+    /**
+     * Constructs an empty insertion-ordered map with the specified initial
+     * capacity.
+     *
+     * @param  initialCapacity the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public ConcurrentLinkedHashMap(int initialCapacity) {
+        this(initialCapacity, false);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and
+     * ordering mode.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  accessOrder     the ordering mode - <tt>true</tt> for
+     *         access-order, <tt>false</tt> for insertion-order
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public ConcurrentLinkedHashMap(int initialCapacity, boolean accessOrder) {
+        this.data = new ConcurrentHashMap<>(initialCapacity);
+        this.accessOrder = accessOrder;
+        int n = 1;
+        int ncpu = Runtime.getRuntime().availableProcessors();
+        while (n < ncpu && n < MAX_BUFFERS)
+            n <<= 1;
+        ReadBuffer[] buffers = new ReadBuffer[n];
+        for (int i = 0; i < n; i++)
+            buffers[i] = new ReadBuffer();
+        this.readBuffers = buffers;
+    }
+
+    // Linked list maintenance, all under the eviction lock
+
+    private void linkLast(Node<K,V> p) {
+        Node<K,V> last = tail;
+        tail = p;
+        if (last == null)
+            head = p;
+        else {
+            p.prev = last;
+            last.next = p;
+        }
+        p.linked = true;
+    }
+
+    private void unlink(Node<K,V> p) {
+        Node<K,V> b = p.prev, a = p.next;
+        p.prev = p.next = null;
+        if (b == null)
+            head = a;
+        else
+            b.next = a;
+        if (a == null)
+            tail = b;
+        else
+            a.prev = b;
+        p.linked = false;
+    }
+
+    private void moveToLast(Node<K,V> p) {
+        if (p.linked && tail != p) {
+            unlink(p);
+            linkLast(p);
+        }
+    }
+
+    /**
+     * Replays every buffered read.
+     */
+    @SuppressWarnings("unchecked")
+    private void drainReadBuffers() {
+        for (ReadBuffer buffer : readBuffers) {
+            AtomicReferenceArray<Node<?,?>> slots = buffer.slots;
+            long r = buffer.reads;
+            long w = buffer.writes.get();
+            for (; r < w; r++) {
+                int i = (int) r & BUFFER_MASK;
+                Node<K,V> p = (Node<K,V>) slots.get(i);
+                if (p == null)
+                    break; // claimed but not yet published
+                slots.lazySet(i, null);
+                moveToLast(p);
+            }
+            buffer.reads = r;
+        }
+    }
+
+    /**
+     * Records an access to {@code p}.  Never blocks.
+     */
+    private void afterNodeAccess(Node<K,V> p) {
+        if (!accessOrder)
+            return;
+        int h = Integer.mix((int) Thread.currentThread().getId());
+        ReadBuffer buffer = readBuffers[h & (readBuffers.length - 1)];
+        if (buffer.offer(p) && evictionLock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Links a node just added to {@code data}, unless it was removed in the
+     * meantime, and gives {@link #removeEldestEntry} its chance.
+     */
+    private void afterNodeInsertion(Node<K,V> p) {
+        evictionLock.lock();
+        try {
+            if (accessOrder)
+                drainReadBuffers();
+            if (!p.retired)
+                linkLast(p);
+            Node<K,V> first = head;
+            if (first != null &&
+                removeEldestEntry(new SimpleImmutableEntry<>(first.key, first.value)) &&
+                data.remove(first.key, first)) {
+                synchronized (first) {
+                    first.alive = false;
+                }
+                retire(first);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Unlinks a node that has been removed from {@code data}.
+     */
+    private void afterNodeRemoval(Node<K,V> p) {
+        evictionLock.lock();
+        try {
+            retire(p);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void retire(Node<K,V> p) {
+        if (p.linked)
+            unlink(p);
+        p.retired = true;
+    }
+
+    // Map operations
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        return data.containsKey(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        Objects.requireNonNull(value);
+        for (Node<K,V> p : data.values()) {
+            if (value.equals(p.value))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.  In an
+     * access-ordered map this records an access to the entry.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        Node<K,V> p = data.get(key);
+        if (p == null)
+            return null;
+        afterNodeAccess(p);
+        return p.value;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V put(K key, V value) {
+        return put(key, value, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, true);
+    }
+
+    private V put(K key, V value, boolean onlyIfAbsent) {
+        Objects.requireNonNull(value);
+        for (;;) {
+            Node<K,V> p = data.get(key);
+            if (p == null) {
+                Node<K,V> node = new Node<>(key, value);
+                if ((p = data.putIfAbsent(key, node)) == null) {
+                    afterNodeInsertion(node);
+                    return null;
+                }
+            }
+            V old;
+            synchronized (p) {
+                if (!p.alive)
+                    continue; // removed concurrently; retry
+                old = p.value;
+                if (!onlyIfAbsent)
+                    p.value = value;
+            }
+            afterNodeAccess(p);
+            return old;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        Node<K,V> p = data.remove(key);
+        if (p == null)
+            return null;
+        V old;
+        synchronized (p) {
+            p.alive = false;
+            old = p.value;
+        }
+        afterNodeRemoval(p);
+        return old;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        Node<K,V> p = data.get(key);
+        if (p == null || value == null)
+            return false;
+        synchronized (p) {
+            if (!p.alive || !value.equals(p.value) || !data.remove(key, p))
+                return false;
+            p.alive = false;
+        }
+        afterNodeRemoval(p);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        Objects.requireNonNull(oldValue);
+        Objects.requireNonNull(newValue);
+        Node<K,V> p = data.get(key);
+        if (p == null)
+            return false;
+        synchronized (p) {
+            if (!p.alive || !oldValue.equals(p.value))
+                return false;
+            p.value = newValue;
+        }
+        afterNodeAccess(p);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V replace(K key, V value) {
+        Objects.requireNonNull(value);
+        Node<K,V> p = data.get(key);
+        if (p == null)
+            return null;
+        V old;
+        synchronized (p) {
+            if (!p.alive)
+                return null;
+            old = p.value;
+            p.value = value;
+        }
+        afterNodeAccess(p);
+        return old;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        for (K key : data.keySet())
+            remove(key);
+    }
+
+    /**
+     * Returns a snapshot of the eldest entry in the map, or {@code null} if
+     * the map is empty.  Pending reads are applied first, so in an
+     * access-ordered map this is the least recently accessed entry as far
+     * as the buffered accesses tell.
+     *
+     * @return the eldest entry, or {@code null} if the map is empty
+     */
+    public Map.Entry<K,V> eldest() {
+        evictionLock.lock();
+        try {
+            if (accessOrder)
+                drainReadBuffers();
+            Node<K,V> first = head;
+            return (first == null) ? null : new SimpleImmutableEntry<>(first.key, first.value);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map should remove its eldest entry.
+     * This method is invoked by <tt>put</tt>, <tt>putIfAbsent</tt> and
+     * <tt>putAll</tt> after inserting a new entry into the map, exactly as
+     * in {@link java.util.LinkedHashMap#removeEldestEntry(Map.Entry)}:
+     * <pre>
+     *     private static final int MAX_ENTRIES = 100;
+     *
+     *     protected boolean removeEldestEntry(Map.Entry eldest) {
+     *        return size() &gt; MAX_ENTRIES;
+     *     }
+     * </pre>
+     *
+     * <p>It is called while holding the eviction lock, so it sees a stable
+     * list and is never called concurrently with itself, but it should be
+     * quick: insertions by other threads wait for it.  It may modify the
+     * map directly, in which case it must return <tt>false</tt>.
+     *
+     * <p>This implementation merely returns <tt>false</tt>.
+     *
+     * @param    eldest a snapshot of the least recently inserted entry in
+     *           the map, or if this is an access-ordered map, the least
+     *           recently accessed entry as far as the buffered accesses
+     *           tell.  This is the entry that will be removed if this
+     *           method returns <tt>true</tt> and it has not changed in the
+     *           meantime.
+     * @return   <tt>true</tt> if the eldest entry should be removed
+     *           from the map; <tt>false</tt> if it should be retained.
+     */
+    protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
+        return false;
+    }
+
+    // Views
+
+    private transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map and supports removal.  Its iterator is
+     * weakly consistent, visits entries in no particular order and does
+     * not record accesses.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public int size() {
+            return ConcurrentLinkedHashMap.this.size();
+        }
+
+        public void clear() {
+            ConcurrentLinkedHashMap.this.clear();
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Node<K,V> p = (e.getKey() == null) ? null : data.get(e.getKey());
+            return p != null && p.value.equals(e.getValue());
+        }
+
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            return e.getKey() != null &&
+                ConcurrentLinkedHashMap.this.remove(e.getKey(), e.getValue());
+        }
+
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    final class EntryIterator implements Iterator<Map.Entry<K,V>> {
+        final Iterator<Node<K,V>> it = data.values().iterator();
+        K lastKey;
+
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        public Map.Entry<K,V> next() {
+            Node<K,V> p = it.next();
+            lastKey = p.key;
+            return new WriteThroughEntry(p.key, p.value);
+        }
+
+        public void remove() {
+            if (lastKey == null)
+                throw new IllegalStateException();
+            ConcurrentLinkedHashMap.this.remove(lastKey);
+            lastKey = null;
+        }
+    }
+
+    /**
+     * An entry whose {@code setValue} writes through to the map, as in
+     * {@code ConcurrentHashMap}.
+     */
+    final class WriteThroughEntry extends SimpleEntry<K,V> {
+        private static final long serialVersionUID = 1L;
+
+        WriteThroughEntry(K key, V value) {
+            super(key, value);
+        }
+
+        public V setValue(V value) {
+            Objects.requireNonNull(value);
+            V v = super.setValue(value);
+            ConcurrentLinkedHashMap.this.put(getKey(), value);
+            return v;
+        }
+    }
+}
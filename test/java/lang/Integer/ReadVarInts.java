@@ -0,0 +1,68 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+/*
+ * @test
+ * @summary Integer.readVarInts must advance by the bytes actually read,
+ *          including for padded encodings decoded byte by byte at the end
+ *          of the array
+ */
+
+import java.util.Arrays;
+
+public class ReadVarInts {
+
+    public static void main(String[] args) {
+        // Padded (non-canonical) zero and one; the last two land in the
+        // byte-by-byte tail because fewer than five bytes remain.
+        byte[] src = { (byte) 0x80, 0x00, 0x05, (byte) 0x81, 0x00, 0x07 };
+        check(src, 4, new int[] { 0, 5, 1, 7 }, 6);
+
+        // A padded value long enough to take the five-byte fast path,
+        // followed by a padded value in the tail.
+        byte[] mixed = { (byte) 0xff, (byte) 0x80, (byte) 0x80, 0x00,
+                         0x01, (byte) 0x82, 0x00 };
+        check(mixed, 3, new int[] { 0x7f, 1, 2 }, 7);
+
+        // Canonical encodings round-trip through both paths.
+        int[] values = { 0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1,
+                         Integer.MIN_VALUE, 0x0fffffff, 0x10000000 };
+        byte[] buf = new byte[values.length * 5];
+        int n = 0;
+        for (int v : values)
+            n += Integer.writeVarInt(v, buf, n);
+        for (int cut = 0; cut <= 5; cut++) {
+            byte[] b = Arrays.copyOf(buf, n + cut);
+            check(b, values.length, values, n);
+        }
+    }
+
+    static void check(byte[] src, int count, int[] expected, int expectedEnd) {
+        int[] dst = new int[count];
+        int end = Integer.readVarInts(src, 0, dst, 0, count);
+        if (!Arrays.equals(dst, expected))
+            throw new RuntimeException("decoded " + Arrays.toString(dst) +
+                                       ", expected " + Arrays.toString(expected));
+        if (end != expectedEnd)
+            throw new RuntimeException("end " + end + ", expected " + expectedEnd);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+/*
+ * @test
+ * @summary A value serializer that fails while replacing a value must
+ *          leave the old mapping intact and leak no memory
+ */
+
+import java.nio.ByteBuffer;
+import java.util.OffHeapLinkedHashMap;
+
+public class FailedReplace {
+
+    /** Writes one byte too few for values starting with "bad". */
+    static final OffHeapLinkedHashMap.Serializer<String> SHORT_WRITER =
+        new OffHeapLinkedHashMap.Serializer<String>() {
+            public int size(String value) {
+                return OffHeapLinkedHashMap.STRING.size(value);
+            }
+            public void write(String value, ByteBuffer dst) {
+                if (value.startsWith("bad"))
+                    dst.put(new byte[size(value) - 1]);
+                else
+                    OffHeapLinkedHashMap.STRING.write(value, dst);
+            }
+            public String read(ByteBuffer src) {
+                return OffHeapLinkedHashMap.STRING.read(src);
+            }
+        };
+
+    public static void main(String[] args) {
+        try (OffHeapLinkedHashMap<String,String> m =
+                 new OffHeapLinkedHashMap<>(OffHeapLinkedHashMap.STRING,
+                                            SHORT_WRITER)) {
+            m.put("a", "0123456789");
+            long used = m.memoryUsed();
+
+            // One that fits the entry's block, and one that does not.
+            String[] values = { "bad", "bad" + new String(new char[200]) };
+            for (String value : values) {
+                try {
+                    m.put("a", value);
+                    throw new RuntimeException("no exception for " + value.length());
+                } catch (IllegalStateException expected) {
+                }
+                if (!"0123456789".equals(m.get("a")))
+                    throw new RuntimeException("old value lost: " + m.get("a"));
+                if (m.size() != 1 || m.memoryUsed() != used)
+                    throw new RuntimeException("size " + m.size() +
+                                               ", memoryUsed " + m.memoryUsed());
+            }
+
+            // Nor may a failed insertion leave anything behind.
+            try {
+                m.put("b", "bad");
+                throw new RuntimeException("no exception for a new key");
+            } catch (IllegalStateException expected) {
+            }
+            if (m.containsKey("b") || m.size() != 1 || m.memoryUsed() != used)
+                throw new RuntimeException("failed insertion left a trace");
+        }
+    }
+}
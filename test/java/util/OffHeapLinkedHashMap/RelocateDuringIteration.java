@@ -0,0 +1,73 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+/*
+ * @test
+ * @summary Replacing a value with one too large for its entry's block
+ *          while iterating must leave the iterator usable, as it does
+ *          with LinkedHashMap
+ */
+
+import java.util.Iterator;
+import java.util.OffHeapLinkedHashMap;
+
+public class RelocateDuringIteration {
+
+    static final String SHORT = "v";
+    static final String LONG = new String(new char[200]).replace('\0', 'v');
+
+    public static void main(String[] args) {
+        try (OffHeapLinkedHashMap<String,String> m =
+                 new OffHeapLinkedHashMap<>(OffHeapLinkedHashMap.STRING,
+                                            OffHeapLinkedHashMap.STRING)) {
+            for (int i = 0; i < 10; i++)
+                m.put("k" + i, SHORT);
+            long used = m.memoryUsed();
+
+            // Grow every value, removing every other key through the
+            // iterator right after growing it.
+            int n = 0;
+            for (Iterator<String> it = m.keySet().iterator(); it.hasNext(); n++) {
+                String k = it.next();
+                if (!SHORT.equals(m.put(k, LONG)))
+                    throw new RuntimeException(k + " had no old value");
+                if (n % 2 == 0)
+                    it.remove();
+            }
+            if (n != 10)
+                throw new RuntimeException("visited " + n + " keys, not 10");
+            if (m.size() != 5)
+                throw new RuntimeException("size " + m.size() + ", not 5");
+            for (int i = 1; i < 10; i += 2) {
+                if (!LONG.equals(m.get("k" + i)))
+                    throw new RuntimeException("k" + i + " lost its value");
+            }
+
+            // Shrinking the values back releases the blocks they outgrew to.
+            for (Iterator<String> it = m.keySet().iterator(); it.hasNext(); )
+                m.put(it.next(), SHORT);
+            if (m.memoryUsed() != used / 2)
+                throw new RuntimeException("memoryUsed " + m.memoryUsed() +
+                                           ", not " + used / 2);
+        }
+    }
+}